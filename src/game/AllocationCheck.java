@@ -0,0 +1,72 @@
+package game;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+
+import game.TicTacToe.State;
+import neuralNet.Net;
+
+/**
+ * Checks that NetPlayer.makeMove creates no new objects. Moves are played until they have been compiled,
+ * then the bytes allocated by the current thread are compared before and after many more moves.
+ * Usage: java game.AllocationCheck [moves], the exit status is 1 if any bytes were allocated by the moves
+ */
+public class AllocationCheck{
+	
+	/**
+	 * The number of moves played before the check starts
+	 */
+	public static final int WARMUP_MOVES = 200000;
+	
+	/**
+	 * The number of moves checked when no number is given
+	 */
+	public static final int CHECK_MOVES = 100000;
+	
+	/**
+	 * Play the given number of moves with the given brain, starting a new game each time one ends
+	 * @param player
+	 * @param brain
+	 * @param game
+	 * @param moves
+	 */
+	private static void playMoves(NetPlayer player, Net brain, TicTacToe game, int moves){
+		for(int i = 0; i < moves; i++){
+			if(game.getState() != State.PLAY) game.reset();
+			player.makeMove(game, brain);
+		}
+	}
+	
+	/**
+	 * Run the check, printing the bytes allocated by the moves
+	 * @param args the number of moves to check, optional
+	 */
+	public static void main(String[] args){
+		int moves = args.length > 0 ? Integer.parseInt(args[0]) : CHECK_MOVES;
+		ThreadMXBean bean = (ThreadMXBean)ManagementFactory.getThreadMXBean();
+		if(!bean.isThreadAllocatedMemorySupported()){
+			System.out.println("This JVM can't count the bytes allocated by a thread");
+			System.exit(2);
+		}
+		bean.setThreadAllocatedMemoryEnabled(true);
+		long id = Thread.currentThread().getId();
+		
+		NetPlayer player = new NetPlayer(1);
+		Net brain = player.getBrain();
+		TicTacToe game = new TicTacToe();
+		playMoves(player, brain, game, WARMUP_MOVES);
+		
+		//reading the count can allocate by itself, so that amount is found first and taken out
+		bean.getThreadAllocatedBytes(id);
+		long overhead = -bean.getThreadAllocatedBytes(id) + bean.getThreadAllocatedBytes(id);
+		
+		long before = bean.getThreadAllocatedBytes(id);
+		playMoves(player, brain, game, moves);
+		long allocated = bean.getThreadAllocatedBytes(id) - before - overhead;
+		
+		System.out.println(moves + " moves allocated " + allocated + " bytes");
+		if(allocated != 0) System.exit(1);
+	}
+	
+}
@@ -0,0 +1,303 @@
+package game;
+
+/**
+ * Whole numbers that identify tic tac toe boards, so that anything stored for a board can be found in an array instead of by looking at the board.
+ * There are three kinds of index:
+ * The rank, where each of the 9 spaces is a digit in base 3, 0 for empty, 1 for X, and 2 for O, and space (i, j) of the board is digit i * 3 + j, in the range [0, 3^9).
+ * The position index, which numbers only the boards that can happen in a game, in the range [0, NUM_POSITIONS).
+ * The canonical index, which gives the same number to boards that are the same after turning or flipping the board, in the range [0, NUM_CLASSES).
+ * Each board has a symmetry that turns it into the canonical board of its class, and moves can be turned the same way with toCanonical and fromCanonical
+ */
+public class BoardIndex{
+	
+	/**
+	 * The number of different ranks a board can have, 3 to the power of 9
+	 */
+	public static final int NUM_RANKS = 19683;
+	
+	/**
+	 * The number of different boards that can happen in a game, including boards where the game is over
+	 */
+	public static final int NUM_POSITIONS;
+	
+	/**
+	 * The number of different boards that can happen in a game when boards that are the same after turning or flipping are counted once
+	 */
+	public static final int NUM_CLASSES;
+	
+	/**
+	 * The number of ways the board can be turned or flipped, including leaving it as it is
+	 */
+	public static final int NUM_SYMMETRIES = 8;
+	
+	/**
+	 * The amount each space adds to the rank for an X, 3 to the power of the space, an O adds twice as much
+	 */
+	private static final int[] POWERS = new int[9];
+	
+	/**
+	 * For every set of board spaces, the number with a base 3 digit of 1 for each space in the set, and 0 for the rest
+	 */
+	private static final int[] BASE_3 = new int[TicTacToe.FULL + 1];
+	
+	/**
+	 * For each symmetry, the space each space moves to. Symmetry 0 leaves the board as it is, 1 to 3 turn it by 90 degrees at a time,
+	 * and 4 to 7 flip it across a row, a column, and each diagonal
+	 */
+	private static final int[][] SYMMETRIES = new int[NUM_SYMMETRIES][];
+	
+	/**
+	 * For each symmetry, the symmetry that undoes it
+	 */
+	private static final int[] INVERSES = new int[NUM_SYMMETRIES];
+	
+	/**
+	 * For each symmetry and each set of spaces, the set of spaces they move to
+	 */
+	private static final short[][] MASKS = new short[NUM_SYMMETRIES][TicTacToe.FULL + 1];
+	
+	/**
+	 * The position index of each rank, or -1 for ranks of boards that can't happen in a game
+	 */
+	private static final short[] POSITIONS = new short[NUM_RANKS];
+	
+	/**
+	 * The rank of each position index
+	 */
+	private static final int[] POSITION_RANKS;
+	
+	/**
+	 * The canonical index of each rank, or -1 for ranks of boards that can't happen in a game
+	 */
+	private static final short[] CLASSES = new short[NUM_RANKS];
+	
+	/**
+	 * The symmetry that turns each rank's board into the canonical board of its class
+	 */
+	private static final byte[] CANONICAL_SYMMETRIES = new byte[NUM_RANKS];
+	
+	/**
+	 * The rank of the canonical board of each canonical index
+	 */
+	private static final int[] CLASS_RANKS;
+	
+	static{
+		POWERS[0] = 1;
+		for(int c = 1; c < 9; c++) POWERS[c] = POWERS[c - 1] * 3;
+		for(int m = 1; m < BASE_3.length; m++) BASE_3[m] = BASE_3[m & (m - 1)] + POWERS[Integer.numberOfTrailingZeros(m)];
+		
+		//each symmetry as the row and column a space moves to
+		int[][] moves = new int[][]{
+			{1, 0, 0, 0, 1, 0}, {0, 1, 0, -1, 0, 2}, {-1, 0, 2, 0, -1, 2}, {0, -1, 2, 1, 0, 0},
+			{-1, 0, 2, 0, 1, 0}, {1, 0, 0, 0, -1, 2}, {0, 1, 0, 1, 0, 0}, {0, -1, 2, -1, 0, 2}
+		};
+		for(int s = 0; s < NUM_SYMMETRIES; s++){
+			//the new row is m[0] * i + m[1] * j + m[2], the new column is m[3] * i + m[4] * j + m[5]
+			int[] m = moves[s];
+			SYMMETRIES[s] = new int[9];
+			for(int i = 0; i < 3; i++){
+				for(int j = 0; j < 3; j++) SYMMETRIES[s][i * 3 + j] = (m[0] * i + m[1] * j + m[2]) * 3 + m[3] * i + m[4] * j + m[5];
+			}
+		}
+		for(int s = 0; s < NUM_SYMMETRIES; s++){
+			for(int t = 0; t < NUM_SYMMETRIES; t++){
+				if(SYMMETRIES[t][SYMMETRIES[s][1]] == 1 && SYMMETRIES[t][SYMMETRIES[s][3]] == 3) INVERSES[s] = t;
+			}
+			for(int mask = 1; mask <= TicTacToe.FULL; mask++){
+				int low = Integer.numberOfTrailingZeros(mask);
+				MASKS[s][mask] = (short)(MASKS[s][mask & (mask - 1)] | 1 << SYMMETRIES[s][low]);
+			}
+		}
+		
+		//number every board that can happen in a game, in the order they are first found
+		for(int r = 0; r < NUM_RANKS; r++){
+			POSITIONS[r] = -1;
+			CLASSES[r] = -1;
+		}
+		int[] ranks = new int[NUM_RANKS];
+		int[] count = new int[1];
+		findPositions(0, 0, true, ranks, count);
+		NUM_POSITIONS = count[0];
+		POSITION_RANKS = new int[NUM_POSITIONS];
+		System.arraycopy(ranks, 0, POSITION_RANKS, 0, NUM_POSITIONS);
+		
+		//the canonical board of a class is the one with the lowest rank
+		int classes = 0;
+		int[] classRanks = new int[NUM_POSITIONS];
+		for(int p = 0; p < NUM_POSITIONS; p++){
+			int rank = POSITION_RANKS[p];
+			int x = getXMask(rank);
+			int o = getOMask(rank);
+			int best = 0;
+			int bestRank = rank;
+			for(int s = 1; s < NUM_SYMMETRIES; s++){
+				int r = getRank(MASKS[s][x], MASKS[s][o]);
+				if(r < bestRank){
+					bestRank = r;
+					best = s;
+				}
+			}
+			if(CLASSES[bestRank] == -1){
+				CLASSES[bestRank] = (short)classes;
+				classRanks[classes++] = bestRank;
+			}
+			CLASSES[rank] = CLASSES[bestRank];
+			CANONICAL_SYMMETRIES[rank] = (byte)best;
+		}
+		NUM_CLASSES = classes;
+		CLASS_RANKS = new int[NUM_CLASSES];
+		System.arraycopy(classRanks, 0, CLASS_RANKS, 0, NUM_CLASSES);
+	}
+	
+	/**
+	 * Find every board that can be reached from the given board, including the given board, and give each one a position index
+	 * @param x the spaces with an X
+	 * @param o the spaces with an O
+	 * @param xTurn true if it is X's turn
+	 * @param ranks the rank of each position index found so far
+	 * @param count the number of positions found so far
+	 */
+	private static void findPositions(int x, int o, boolean xTurn, int[] ranks, int[] count){
+		int rank = getRank(x, o);
+		if(POSITIONS[rank] != -1) return;
+		POSITIONS[rank] = (short)count[0];
+		ranks[count[0]++] = rank;
+		if(TicTacToe.hasLine(x) || TicTacToe.hasLine(o)) return;
+		
+		for(int c = TicTacToe.FULL & ~(x | o); c != 0; c &= c - 1){
+			int bit = c & -c;
+			if(xTurn) findPositions(x | bit, o, false, ranks, count);
+			else findPositions(x, o | bit, true, ranks, count);
+		}
+	}
+	
+	/**
+	 * @param x the spaces with an X, space (i, j) is bit i * 3 + j
+	 * @param o the spaces with an O
+	 * @return the rank of the board
+	 */
+	public static int getRank(int x, int o){
+		return BASE_3[x] + 2 * BASE_3[o];
+	}
+	
+	/**
+	 * @param cell the bit of a space
+	 * @param xTurn true for an X, false for an O
+	 * @return the amount the rank of a board changes by when the given player moves at the given space
+	 */
+	public static int getRankChange(int cell, boolean xTurn){
+		return xTurn ? POWERS[cell] : 2 * POWERS[cell];
+	}
+	
+	/**
+	 * @param rank
+	 * @return the spaces with an X on the board with the given rank
+	 */
+	public static int getXMask(int rank){
+		int x = 0;
+		for(int c = 0; c < 9; c++){
+			if(rank % 3 == 1) x |= 1 << c;
+			rank /= 3;
+		}
+		return x;
+	}
+	
+	/**
+	 * @param rank
+	 * @return the spaces with an O on the board with the given rank
+	 */
+	public static int getOMask(int rank){
+		int o = 0;
+		for(int c = 0; c < 9; c++){
+			if(rank % 3 == 2) o |= 1 << c;
+			rank /= 3;
+		}
+		return o;
+	}
+	
+	/**
+	 * @param rank
+	 * @return the position index of the board with the given rank, or -1 if the board can't happen in a game
+	 */
+	public static int getPosition(int rank){
+		return POSITIONS[rank];
+	}
+	
+	/**
+	 * @param position
+	 * @return the rank of the board with the given position index
+	 */
+	public static int getPositionRank(int position){
+		return POSITION_RANKS[position];
+	}
+	
+	/**
+	 * @param rank
+	 * @return the canonical index of the board with the given rank, the same for every board that is the same after turning or flipping,
+	 * 	or -1 if the board can't happen in a game
+	 */
+	public static int getCanonical(int rank){
+		return CLASSES[rank];
+	}
+	
+	/**
+	 * @param canonical
+	 * @return the rank of the canonical board of the given canonical index
+	 */
+	public static int getCanonicalRank(int canonical){
+		return CLASS_RANKS[canonical];
+	}
+	
+	/**
+	 * @param rank
+	 * @return the symmetry that turns the board with the given rank into the canonical board of its class
+	 */
+	public static int getCanonicalSymmetry(int rank){
+		return CANONICAL_SYMMETRIES[rank];
+	}
+	
+	/**
+	 * @param cell the bit of a space on a board with the given rank
+	 * @param rank
+	 * @return the bit of the same space on the canonical board of the board's class
+	 */
+	public static int toCanonical(int cell, int rank){
+		return SYMMETRIES[CANONICAL_SYMMETRIES[rank]][cell];
+	}
+	
+	/**
+	 * @param cell the bit of a space on the canonical board of the class of the board with the given rank
+	 * @param rank
+	 * @return the bit of the same space on the board with the given rank
+	 */
+	public static int fromCanonical(int cell, int rank){
+		return SYMMETRIES[INVERSES[CANONICAL_SYMMETRIES[rank]]][cell];
+	}
+	
+	/**
+	 * @param cell the bit of a space
+	 * @param symmetry
+	 * @return the bit of the space the given space moves to with the given symmetry
+	 */
+	public static int transformCell(int cell, int symmetry){
+		return SYMMETRIES[symmetry][cell];
+	}
+	
+	/**
+	 * @param mask a set of spaces
+	 * @param symmetry
+	 * @return the set of spaces the given spaces move to with the given symmetry
+	 */
+	public static int transformMask(int mask, int symmetry){
+		return MASKS[symmetry][mask];
+	}
+	
+	/**
+	 * @param symmetry
+	 * @return the symmetry that undoes the given symmetry
+	 */
+	public static int getInverse(int symmetry){
+		return INVERSES[symmetry];
+	}
+	
+}
@@ -0,0 +1,332 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import neuralNet.Net;
+import neuralNet.Node;
+
+/**
+ * Trains a brain by moving all of its weights at once in the direction that most improves its score, estimated from the scores of many nearby brains.
+ * Each generation, pairs of brains are made by moving every weight of the brain by the same random amount, one forward and one backward.
+ * The brains are ranked by their score, and the brain is moved towards the brains ranked high and away from the brains ranked low,
+ * so every score is used, not only the best one. Only the ranks are used, so the size of the move does not depend on how the scores are spread out.
+ * Like the mutability of a Net, the step size changes itself. Each pair uses a step size near the current one,
+ * and the step size of the next generation comes from the pairs that did best
+ */
+public class EvolutionStrategy{
+	
+	/**
+	 * The smallest the step size can be
+	 */
+	public static final double MIN_STEP = .001;
+	/**
+	 * The largest the step size can be
+	 */
+	public static final double MAX_STEP = Net.MAX_MUTABILITY;
+	
+	/**
+	 * The brain being trained
+	 */
+	private Net center;
+	
+	/**
+	 * The weights and biases of center, which are moved each generation and then given to center
+	 */
+	private double[] parameters;
+	
+	/**
+	 * The random direction of each pair, one row of one value for each weight after another, each value is from a normal distribution
+	 */
+	private double[] noise;
+	
+	/**
+	 * The step size used by each pair
+	 */
+	private double[] pairSteps;
+	
+	/**
+	 * The brains made from each pair, the brain moved forward at index 2k, and the brain moved backward at 2k + 1
+	 */
+	private Net[] samples;
+	
+	/**
+	 * The table of moves for each of samples, followed by one for center
+	 */
+	private PolicyTable[] tables;
+	
+	/**
+	 * The score of each of samples
+	 */
+	private double[] fitness;
+	
+	/**
+	 * The index of each of samples, from the lowest score to the highest
+	 */
+	private int[] order;
+	
+	/**
+	 * The rank of each of samples, in the range [-0.5, 0.5], 0.5 for the highest score
+	 */
+	private double[] utility;
+	
+	/**
+	 * The seeds of the games of each generation
+	 */
+	private int[] seeds;
+	
+	/**
+	 * The amount of the step size used by the pairs, the actual distance each weight is moved is the step size times a number from a normal distribution
+	 */
+	private double stepSize;
+	
+	/**
+	 * How much of the estimated direction the brain is moved each generation
+	 */
+	private double learningRate;
+	
+	/**
+	 * How far the step size of each pair can be from the current step size, based on the number of weights
+	 */
+	private double stepChange;
+	
+	/**
+	 * The random numbers used for the directions and step sizes
+	 */
+	private SplittableRandom random;
+	
+	/**
+	 * The pool used to test the brains in parallel, or null to test them one after another
+	 */
+	private ForkJoinPool pool;
+	
+	/**
+	 * The way each brain is tested, FitnessMode.EXACT finds exact scores, every other mode plays the same games as FitnessMode.SAMPLED,
+	 * because every brain needs a score
+	 */
+	private FitnessMode fitnessMode;
+	
+	/**
+	 * True if the brain learns to play as X, false if it learns to play as O
+	 */
+	private boolean playAsX;
+	
+	/**
+	 * The total number of games played by all generations
+	 */
+	private long gamesPlayed;
+	
+	/**
+	 * The score of the brain, the step size, and the average score of the pairs, of each generation
+	 */
+	private ArrayList<double[]> data;
+	
+	/**
+	 * @param start the brain to start training from, it is not changed
+	 * @param pairs the number of pairs of brains tested each generation
+	 * @param stepSize the step size to start with
+	 * @param rand the random numbers used for the directions and step sizes, the same random numbers always train the same way
+	 */
+	public EvolutionStrategy(Net start, int pairs, double stepSize, SplittableRandom rand){
+		center = start.copy();
+		parameters = new double[center.getNumParameters()];
+		center.getParameters(parameters);
+		noise = new double[pairs * parameters.length];
+		pairSteps = new double[pairs];
+		samples = new Net[pairs * 2];
+		tables = new PolicyTable[samples.length + 1];
+		for(int i = 0; i < samples.length; i++) samples[i] = center.copy();
+		for(int i = 0; i < tables.length; i++) tables[i] = new PolicyTable();
+		fitness = new double[samples.length];
+		order = new int[samples.length];
+		utility = new double[samples.length];
+		seeds = new int[0];
+		
+		this.stepSize = stepSize;
+		learningRate = 1;
+		stepChange = 1 / Math.sqrt(2 * parameters.length);
+		random = rand;
+		fitnessMode = FitnessMode.SAMPLED;
+		playAsX = true;
+		gamesPlayed = 0;
+		data = new ArrayList<double[]>();
+	}
+	
+	/**
+	 * Test every pair, and move the brain in the direction estimated from their ranks
+	 * @param games the number of seeds to test each brain with, one game against each AI is played for each seed. Not used with FitnessMode.EXACT.
+	 * 	Every brain plays the same games, so differences in score come from the brains, not the games
+	 */
+	public void train(int games){
+		if(fitnessMode != FitnessMode.EXACT){
+			if(seeds.length != games) seeds = new int[games];
+			for(int i = 0; i < seeds.length; i++) seeds[i] = random.nextInt(Integer.MAX_VALUE);
+		}
+		
+		int pairs = pairSteps.length;
+		for(int k = 0; k < pairs; k++){
+			pairSteps[k] = Math.min(MAX_STEP, Math.max(MIN_STEP, stepSize * Math.exp(stepChange * nextGaussian(random))));
+		}
+		for(int i = 0; i < noise.length; i++) noise[i] = nextGaussian(random);
+		
+		double centerFitness = testAll();
+		if(fitnessMode != FitnessMode.EXACT) gamesPlayed += (samples.length + 1) * (long)seeds.length * 2;
+		
+		//rank the brains from lowest to highest score, ties keep the order of the brains
+		for(int i = 0; i < order.length; i++){
+			int j = i;
+			while(j > 0 && fitness[order[j - 1]] > fitness[i]){
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = i;
+		}
+		for(int r = 0; r < order.length; r++) utility[order[r]] = (double)r / (order.length - 1) - .5;
+		
+		//move towards the brain of each pair that ranked higher, more for pairs that are further apart in rank
+		int n = parameters.length;
+		for(int k = 0; k < pairs; k++){
+			double amount = learningRate * (utility[k * 2] - utility[k * 2 + 1]) * pairSteps[k] / pairs;
+			for(int j = 0; j < n; j++) parameters[j] += amount * noise[k * n + j];
+		}
+		for(int j = 0; j < n; j++) parameters[j] = Node.validRange(parameters[j]);
+		center.setParameters(parameters);
+		
+		//the new step size is the average of the step sizes of the pairs whose better brain ranked in the top half
+		double logTotal = 0;
+		double weightTotal = 0;
+		for(int k = 0; k < pairs; k++){
+			double w = Math.max(0, Math.max(utility[k * 2], utility[k * 2 + 1]));
+			logTotal += w * Math.log(pairSteps[k]);
+			weightTotal += w;
+		}
+		if(weightTotal > 0) stepSize = Math.exp(logTotal / weightTotal);
+		
+		double total = 0;
+		for(int i = 0; i < fitness.length; i++) total += fitness[i];
+		data.add(new double[]{centerFitness, stepSize, total / fitness.length});
+	}
+	
+	/**
+	 * Make and test every brain of the current generation, in parallel if there is a pool
+	 * @return the score of the brain being trained, before it is moved
+	 */
+	private double testAll(){
+		if(pool == null){
+			for(int i = 0; i < samples.length; i++) fitness[i] = testSample(i);
+			return testCenter();
+		}
+		
+		ArrayList<ForkJoinTask<Double>> tasks = new ArrayList<ForkJoinTask<Double>>(samples.length);
+		for(int i = 0; i < samples.length; i++){
+			int index = i;
+			tasks.add(pool.submit(() -> testSample(index)));
+		}
+		ForkJoinTask<Double> centerTest = pool.submit(() -> testCenter());
+		for(int i = 0; i < samples.length; i++) fitness[i] = tasks.get(i).join();
+		return centerTest.join();
+	}
+	
+	/**
+	 * Make the brain at the given index of samples from its pair, and test it
+	 * @param index
+	 * @return the score of the brain
+	 */
+	private double testSample(int index){
+		int k = index / 2;
+		double scale = (index % 2 == 0) ? pairSteps[k] : -pairSteps[k];
+		center.perturbInto(samples[index], noise, k * parameters.length, scale);
+		tables[index].load(samples[index], playAsX);
+		return getFitness(tables[index]);
+	}
+	
+	/**
+	 * @return the score of the brain being trained
+	 */
+	private double testCenter(){
+		PolicyTable table = tables[samples.length];
+		table.load(center, playAsX);
+		return getFitness(table);
+	}
+	
+	/**
+	 * @param table
+	 * @return the average score of the brain with the given table against the random AI and the smart AI
+	 */
+	private double getFitness(PolicyTable table){
+		if(fitnessMode == FitnessMode.EXACT){
+			ExactEvaluator e = ExactEvaluator.forThread();
+			return (e.getExpectedScore(table, playAsX, Opponent.RANDOM) + e.getExpectedScore(table, playAsX, Opponent.SMART)) * .5;
+		}
+		int score = NetPlayer.playGames(table, seeds, 0, seeds.length, Opponent.RANDOM, playAsX) + NetPlayer.playGames(table, seeds, 0, seeds.length, Opponent.SMART, playAsX);
+		return score / (seeds.length * 2.0);
+	}
+	
+	/**
+	 * @param rand
+	 * @return a random number from a normal distribution with a mean of 0 and a standard deviation of 1
+	 */
+	private static double nextGaussian(SplittableRandom rand){
+		return Math.sqrt(-2 * Math.log(1 - rand.nextDouble())) * Math.cos(2 * Math.PI * rand.nextDouble());
+	}
+	
+	/**
+	 * @return the brain being trained, this is the same net every generation, and changes each time train is called
+	 */
+	public Net getBrain(){
+		return center;
+	}
+	
+	/**
+	 * @return the current step size
+	 */
+	public double getStepSize(){
+		return stepSize;
+	}
+	
+	/**
+	 * @param learningRate how much of the estimated direction the brain is moved each generation, 1 by default
+	 */
+	public void setLearningRate(double learningRate){
+		this.learningRate = learningRate;
+	}
+	
+	/**
+	 * Set the pool used to test brains in parallel. The brain is trained the same way with or without a pool
+	 * @param pool the pool, or null to test brains one after another
+	 */
+	public void setPool(ForkJoinPool pool){
+		this.pool = pool;
+	}
+	
+	/**
+	 * @param fitnessMode the way brains are tested, FitnessMode.EXACT finds exact scores, every other mode plays the games of FitnessMode.SAMPLED
+	 */
+	public void setFitnessMode(FitnessMode fitnessMode){
+		this.fitnessMode = fitnessMode;
+	}
+	
+	/**
+	 * @param playAsX true if the brain should learn to play as X, false if it should learn to play as O
+	 */
+	public void setPlayAsX(boolean playAsX){
+		this.playAsX = playAsX;
+	}
+	
+	/**
+	 * @return the total number of games played by every call to train
+	 */
+	public long getGamesPlayed(){
+		return gamesPlayed;
+	}
+	
+	/**
+	 * @return the score of the brain before it was moved, the step size after it changed, and the average score of the pairs, of each generation
+	 */
+	public ArrayList<double[]> getData(){
+		return data;
+	}
+	
+}
@@ -0,0 +1,116 @@
+package game;
+
+import game.TicTacToe.State;
+
+/**
+ * Finds the exact average score a brain gets against an opponent, as if it played every possible game, by going through every move the opponent might make.
+ * The brain always makes the same move on the same board, and the opponent picks evenly from its choices, so the average score from each board only needs to be found once.
+ * An evaluator is not thread safe, so each thread should use its own, which can be obtained with forThread()
+ */
+public class ExactEvaluator{
+	
+	/**
+	 * The evaluator belonging to each thread
+	 */
+	private static final ThreadLocal<ExactEvaluator> EVALUATORS = new ThreadLocal<ExactEvaluator>(){
+		@Override
+		protected ExactEvaluator initialValue(){
+			return new ExactEvaluator();
+		}
+	};
+	
+	/**
+	 * The average score found from each board rank
+	 */
+	private double[] scores;
+	
+	/**
+	 * The search that each score in scores was found in, a score is only used if it was found in the current search
+	 */
+	private int[] found;
+	
+	/**
+	 * The number of searches done by this evaluator, used to tell which scores are from the current search
+	 */
+	private int search;
+	
+	/**
+	 * The game used to go through each move
+	 */
+	private TicTacToe game;
+	
+	public ExactEvaluator(){
+		scores = new double[BoardIndex.NUM_RANKS];
+		found = new int[BoardIndex.NUM_RANKS];
+		search = 0;
+		game = new TicTacToe();
+	}
+	
+	/**
+	 * Find the average score of the brain with the given table against the given opponent, over every game that could be played
+	 * @param table the moves of the brain
+	 * @param playAsX true if the brain plays as X, false if it plays as O
+	 * @param opponent
+	 * @return the average score, 1 for a win, -1 for a loss, and 0 for a tie, in the range [-1, 1]
+	 */
+	public double getExpectedScore(PolicyTable table, boolean playAsX, Opponent opponent){
+		search++;
+		game.reset();
+		return getExpectedScore(table, playAsX, opponent, game.getRank());
+	}
+	
+	/**
+	 * Find the average score from the current board of the game of this evaluator
+	 * @param table
+	 * @param playAsX
+	 * @param opponent
+	 * @param rank the rank of the current board
+	 * @return
+	 */
+	private double getExpectedScore(PolicyTable table, boolean playAsX, Opponent opponent, int rank){
+		if(found[rank] == search) return scores[rank];
+		
+		double score;
+		State state = game.getState();
+		if(state == State.X_WIN) score = playAsX ? 1 : -1;
+		else if(state == State.O_WIN) score = playAsX ? -1 : 1;
+		else if(state == State.DRAW) score = 0;
+		else if(game.isXTurn() == playAsX){
+			int cell = NetPlayer.getCell(table.getMove(game));
+			score = getScoreAfter(table, playAsX, opponent, cell);
+		}
+		else{
+			int choices = opponent.getChoices(game);
+			score = 0;
+			for(int c = choices; c != 0; c &= c - 1) score += getScoreAfter(table, playAsX, opponent, Integer.numberOfTrailingZeros(c));
+			score /= Integer.bitCount(choices);
+		}
+		
+		scores[rank] = score;
+		found[rank] = search;
+		return score;
+	}
+	
+	/**
+	 * Find the average score after making a move on the game of this evaluator, the move is taken back before returning
+	 * @param table
+	 * @param playAsX
+	 * @param opponent
+	 * @param cell the bit of the space to move at
+	 * @return
+	 */
+	private double getScoreAfter(PolicyTable table, boolean playAsX, Opponent opponent, int cell){
+		game.makeMove(cell);
+		double score = getExpectedScore(table, playAsX, opponent, game.getRank());
+		game.undoMove(cell);
+		return score;
+	}
+	
+	/**
+	 * @return the evaluator that belongs to the current thread
+	 */
+	public static ExactEvaluator forThread(){
+		return EVALUATORS.get();
+	}
+	
+}
@@ -0,0 +1,28 @@
+package game;
+
+/**
+ * The ways a NetPlayer can find how good each of its brains is when training
+ */
+public enum FitnessMode{
+	
+	/**
+	 * Play one game against each AI for every seed, and average the scores
+	 */
+	SAMPLED,
+	
+	/**
+	 * Find the exact average score against each AI over every game that could be played, with an ExactEvaluator. No seeds are used
+	 */
+	EXACT,
+	
+	/**
+	 * Play the same games as SAMPLED, but in rounds with a RacingEvaluator, which stops playing games with brains that are clearly worse than the best brain
+	 */
+	RACING,
+	
+	/**
+	 * Play the same games as SAMPLED, but with a LockstepEvaluator, which plays each seed with every brain at once so that brains on the same board share the work
+	 */
+	LOCKSTEP;
+	
+}
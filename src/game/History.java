@@ -0,0 +1,552 @@
+package game;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The values recorded each generation of training, such as fitness and mutability, kept as one column of numbers for each value instead of an object for each generation.
+ * Each column is stored in chunks of CHUNK_SIZE numbers, so adding a generation never copies the numbers already recorded, and reading a column goes through memory in order.
+ * A history can keep every generation, or only the most recent generations, in which case the oldest generation is replaced once it is full.
+ * Anything that only reads the history, like a graph, should be given a View, which can't change it.
+ * The lowest, highest, and total value of each column is also kept for buckets of 2^l rows, for every level l from BASE_LEVEL up, 
+ * so any range of rows can be summed up from a few buckets instead of reading every row.
+ * Every method that reads or changes the rows is synchronized, so a history can be added to on one thread, like the training thread, and read on another, like the event thread
+ */
+public class History{
+	
+	/**
+	 * The number of rows in each chunk, a power of 2
+	 */
+	public static final int CHUNK_SIZE = 4096;
+	private static final int CHUNK_SHIFT = 12;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	
+	/**
+	 * The lowest level of detail kept for buckets of rows, bucket k of level l is the rows [k * 2^l, (k + 1) * 2^l), counted from the first row ever added. 
+	 * Smaller buckets are found from the rows themselves
+	 */
+	public static final int BASE_LEVEL = 6;
+	
+	/**
+	 * The highest level of detail kept for buckets of rows
+	 */
+	public static final int MAX_LEVEL = 30;
+	
+	/**
+	 * The name of each column
+	 */
+	private String[] names;
+	
+	/**
+	 * The chunks of each column, indexed by column, then chunk, then position in the chunk. Chunks are only made when they are needed
+	 */
+	private double[][][] chunks;
+	
+	/**
+	 * The most rows kept, or 0 to keep every row
+	 */
+	private int capacity;
+	
+	/**
+	 * The number of rows kept
+	 */
+	private int size;
+	
+	/**
+	 * The position where the oldest row kept is stored, always 0 unless rows have been replaced
+	 */
+	private int head;
+	
+	/**
+	 * The number of rows ever added, including rows that have been replaced
+	 */
+	private long total;
+	
+	/**
+	 * The number of rows added before this history was made, 0 unless this history is a copy, in which case the oldest row copied keeps its number
+	 */
+	private long start;
+	
+	/**
+	 * The lowest, highest, and total value of each column in each bucket, indexed by level - BASE_LEVEL, then slot * getColumns() + column. 
+	 * Only the buckets with rows that are kept have a slot, a bucket takes the slot of an older bucket once its first row is added. 
+	 * A bucket that had some of its rows replaced is never read, the rows of it that are kept are found from smaller buckets instead
+	 */
+	private double[][] bucketMins;
+	private double[][] bucketMaxes;
+	private double[][] bucketSums;
+	
+	/**
+	 * The lowest, highest, and total value last found by findRange, reused so nothing is made each time
+	 */
+	private double[] range;
+	
+	/**
+	 * The view of this history that can only read it
+	 */
+	private View view;
+	
+	/**
+	 * Make a history that keeps every row
+	 * @param names the name of each column
+	 */
+	public History(String... names){
+		this(0, names);
+	}
+	
+	/**
+	 * @param capacity the most rows kept, once there are this many rows, each new row replaces the oldest row. 0 to keep every row
+	 * @param names the name of each column
+	 */
+	public History(int capacity, String... names){
+		this.names = names.clone();
+		this.capacity = Math.max(0, capacity);
+		int numChunks = (this.capacity > 0) ? (this.capacity + CHUNK_SIZE - 1) >> CHUNK_SHIFT : 16;
+		chunks = new double[names.length][numChunks][];
+		size = 0;
+		head = 0;
+		total = 0;
+		start = 0;
+		
+		//when only some rows are kept, there are no buckets bigger than the rows kept
+		int levels = MAX_LEVEL - BASE_LEVEL + 1;
+		if(this.capacity > 0){
+			levels = 0;
+			while(BASE_LEVEL + levels <= MAX_LEVEL && 1 << (BASE_LEVEL + levels) <= this.capacity) levels++;
+		}
+		bucketMins = new double[levels][];
+		bucketMaxes = new double[levels][];
+		bucketSums = new double[levels][];
+		for(int l = 0; l < levels; l++){
+			int slots = (this.capacity > 0) ? (this.capacity >> (l + BASE_LEVEL)) + 2 : 16;
+			bucketMins[l] = new double[slots * names.length];
+			bucketMaxes[l] = new double[slots * names.length];
+			bucketSums[l] = new double[slots * names.length];
+		}
+		range = new double[3];
+		view = new View();
+	}
+	
+	/**
+	 * Add a row to the end of this history
+	 * @param row one value for each column, the values are copied
+	 */
+	public synchronized void add(double... row){
+		int p;
+		if(capacity > 0 && size == capacity){
+			//replace the oldest row
+			p = head;
+			head = (head + 1 == capacity) ? 0 : head + 1;
+		}
+		else{
+			p = getPosition(size);
+			size++;
+		}
+		int c = p >> CHUNK_SHIFT;
+		int offset = p & CHUNK_MASK;
+		for(int i = 0; i < chunks.length; i++){
+			double[][] column = chunks[i];
+			if(c == column.length){
+				//only the array of chunks grows, the numbers in the chunks are not copied
+				double[][] more = new double[column.length * 2][];
+				System.arraycopy(column, 0, more, 0, column.length);
+				chunks[i] = more;
+				column = more;
+			}
+			if(column[c] == null) column[c] = new double[CHUNK_SIZE];
+			column[c][offset] = row[i];
+		}
+		
+		//add the row to the bucket it is in on every level
+		int columns = names.length;
+		for(int l = 0; l < bucketMins.length; l++){
+			int level = l + BASE_LEVEL;
+			int s = getSlot(l, total >> level) * columns;
+			if(s >= bucketMins[l].length){
+				bucketMins[l] = Arrays.copyOf(bucketMins[l], bucketMins[l].length * 2);
+				bucketMaxes[l] = Arrays.copyOf(bucketMaxes[l], bucketMaxes[l].length * 2);
+				bucketSums[l] = Arrays.copyOf(bucketSums[l], bucketSums[l].length * 2);
+			}
+			double[] mins = bucketMins[l];
+			double[] maxes = bucketMaxes[l];
+			double[] sums = bucketSums[l];
+			//the first row of a bucket replaces whatever bucket had the slot before
+			boolean first = (total & ((1L << level) - 1)) == 0 || total == start;
+			for(int i = 0; i < columns; i++){
+				double v = row[i];
+				if(first){
+					mins[s + i] = v;
+					maxes[s + i] = v;
+					sums[s + i] = v;
+				}
+				else{
+					if(v < mins[s + i]) mins[s + i] = v;
+					if(v > maxes[s + i]) maxes[s + i] = v;
+					sums[s + i] += v;
+				}
+			}
+		}
+		total++;
+	}
+	
+	/**
+	 * @param l the level of a bucket - BASE_LEVEL
+	 * @param k the number of a bucket, counted from the first row ever added
+	 * @return the slot the bucket is stored in
+	 */
+	private int getSlot(int l, long k){
+		if(capacity > 0) return (int)(k % ((capacity >> (l + BASE_LEVEL)) + 2));
+		return (int)(k - (start >> (l + BASE_LEVEL)));
+	}
+	
+	/**
+	 * @param capacity the most rows kept by the new history, or 0 to keep every row
+	 * @return a new history with the same columns, the most recent rows of this history that fit, and the same total
+	 */
+	public synchronized History copy(int capacity){
+		History h = new History(capacity, names);
+		double[] row = new double[names.length];
+		int first = (capacity > 0) ? Math.max(0, size - capacity) : 0;
+		//the rows copied keep their numbers, so they are in the same buckets
+		h.start = total - size + first;
+		h.total = h.start;
+		for(int r = first; r < size; r++){
+			getRow(r, row);
+			h.add(row);
+		}
+		return h;
+	}
+	
+	/**
+	 * @param row the index of a row, 0 for the oldest row kept
+	 * @return the position the row is stored at
+	 */
+	private int getPosition(int row){
+		if(capacity == 0) return row;
+		int p = head + row;
+		return (p >= capacity) ? p - capacity : p;
+	}
+	
+	/**
+	 * @param row the index of a row, 0 for the oldest row kept
+	 * @param column
+	 * @return the value of the given column in the given row
+	 */
+	public synchronized double get(int row, int column){
+		int p = getPosition(row);
+		return chunks[column][p >> CHUNK_SHIFT][p & CHUNK_MASK];
+	}
+	
+	/**
+	 * Put every value of a row in the given array
+	 * @param row the index of a row, 0 for the oldest row kept
+	 * @param out the array to put the values in, must have room for every column
+	 */
+	public synchronized void getRow(int row, double[] out){
+		int p = getPosition(row);
+		int c = p >> CHUNK_SHIFT;
+		int offset = p & CHUNK_MASK;
+		for(int i = 0; i < chunks.length; i++) out[i] = chunks[i][c][offset];
+	}
+	
+	/**
+	 * Copy part of a column to the given array, one chunk at a time
+	 * @param column
+	 * @param from the index of the first row to copy
+	 * @param to the index after the last row to copy
+	 * @param out
+	 * @param start the index in out to put the first value
+	 */
+	public synchronized void getColumn(int column, int from, int to, double[] out, int start){
+		double[][] col = chunks[column];
+		int row = from;
+		while(row < to){
+			int p = getPosition(row);
+			//copy until the end of the chunk, the end of the rows, or the end of the ring, whichever comes first
+			int n = Math.min(CHUNK_SIZE - (p & CHUNK_MASK), to - row);
+			if(capacity > 0) n = Math.min(n, capacity - p);
+			System.arraycopy(col[p >> CHUNK_SHIFT], p & CHUNK_MASK, out, start + row - from, n);
+			row += n;
+		}
+	}
+	
+	/**
+	 * @param column
+	 * @return the lowest value of the given column, or positive infinity if there are no rows
+	 */
+	public synchronized double getMin(int column){
+		findRange(column, total - size, total);
+		return range[0];
+	}
+	
+	/**
+	 * @param column
+	 * @return the highest value of the given column, or negative infinity if there are no rows
+	 */
+	public synchronized double getMax(int column){
+		findRange(column, total - size, total);
+		return range[1];
+	}
+	
+	/**
+	 * Find the lowest, highest, and average value of every column in the buckets of the given level, where bucket k is the rows [k * 2^level, (k + 1) * 2^level), 
+	 * counted from the first row ever added. Only the rows that are kept, and were added before end, are part of a bucket. 
+	 * A bucket of at least BASE_LEVEL that has all of its rows is read from the buckets kept by this history, so the time taken depends on the number of buckets, not rows. 
+	 * Every bucket is found at once, so rows added on another thread can't change them part way through
+	 * @param level the level of detail, each bucket is 2^level rows
+	 * @param from the first bucket
+	 * @param to the bucket after the last bucket
+	 * @param end the number of rows added when the rows were counted by the caller, rows added after it are not part of any bucket
+	 * @param mins the lowest value of each column in each bucket, the value of column i in bucket k is put at (k - from) * getColumns() + i. 
+	 * 	NaN for a bucket with no rows
+	 * @param maxes the highest value of each column in each bucket
+	 * @param means the average value of each column in each bucket
+	 */
+	public synchronized void getBuckets(int level, long from, long to, long end, double[] mins, double[] maxes, double[] means){
+		int columns = names.length;
+		int l = level - BASE_LEVEL;
+		long first = total - size;
+		end = Math.min(end, total);
+		for(long k = from; k < to; k++){
+			long a = Math.max(k << level, first);
+			long e = Math.min((k + 1) << level, end);
+			int b = (int)(k - from) * columns;
+			if(a >= e){
+				for(int i = 0; i < columns; i++){
+					mins[b + i] = Double.NaN;
+					maxes[b + i] = Double.NaN;
+					means[b + i] = Double.NaN;
+				}
+			}
+			else if(l >= 0 && l < bucketMins.length && a == k << level && e == Math.min((k + 1) << level, total)){
+				int s = getSlot(l, k) * columns;
+				for(int i = 0; i < columns; i++){
+					mins[b + i] = bucketMins[l][s + i];
+					maxes[b + i] = bucketMaxes[l][s + i];
+					means[b + i] = bucketSums[l][s + i] / (e - a);
+				}
+			}
+			else{
+				for(int i = 0; i < columns; i++){
+					findRange(i, a, e);
+					mins[b + i] = range[0];
+					maxes[b + i] = range[1];
+					means[b + i] = range[2] / (e - a);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Find the lowest, highest, and total value of a column in the given rows, from the biggest buckets that fit in the rows, 
+	 * and the rows themselves where no bucket fits. The values are put in range
+	 * @param column
+	 * @param from the number of the first row, counted from the first row ever added, it must be kept
+	 * @param to the number after the last row
+	 */
+	private void findRange(int column, long from, long to){
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		double sum = 0;
+		int columns = names.length;
+		double[][] col = chunks[column];
+		long r = from;
+		while(r < to){
+			//the biggest bucket that starts at r and has no rows after to, the last bucket may not have all of its rows yet
+			int l = bucketMins.length - 1;
+			while(l >= 0 && ((r & ((1L << (l + BASE_LEVEL)) - 1)) != 0 || Math.min(r + (1L << (l + BASE_LEVEL)), total) > to)) l--;
+			if(l >= 0){
+				int s = getSlot(l, r >> (l + BASE_LEVEL)) * columns + column;
+				if(bucketMins[l][s] < min) min = bucketMins[l][s];
+				if(bucketMaxes[l][s] > max) max = bucketMaxes[l][s];
+				sum += bucketSums[l][s];
+				r = Math.min(r + (1L << (l + BASE_LEVEL)), total);
+			}
+			else{
+				//the rows until the next bucket of the lowest level
+				long end = Math.min(to, (r | ((1L << BASE_LEVEL) - 1)) + 1);
+				for(long g = r; g < end; g++){
+					int p = getPosition((int)(g - (total - size)));
+					double v = col[p >> CHUNK_SHIFT][p & CHUNK_MASK];
+					if(v < min) min = v;
+					if(v > max) max = v;
+					sum += v;
+				}
+				r = end;
+			}
+		}
+		range[0] = min;
+		range[1] = max;
+		range[2] = sum;
+	}
+	
+	/**
+	 * Write every row kept as comma separated values, with a line of the column names first
+	 * @param out
+	 * @throws IOException if out can't be written to
+	 */
+	public synchronized void writeCsv(Appendable out) throws IOException{
+		out.append("generation");
+		for(String n : names) out.append(',').append(n);
+		out.append('\n');
+		long first = total - size;
+		for(int r = 0; r < size; r++){
+			out.append(Long.toString(first + r + 1));
+			for(int i = 0; i < names.length; i++) out.append(',').append(Double.toString(get(r, i)));
+			out.append('\n');
+		}
+	}
+	
+	/**
+	 * @return the number of rows kept
+	 */
+	public synchronized int size(){
+		return size;
+	}
+	
+	/**
+	 * @return the number of rows ever added, including rows that have been replaced
+	 */
+	public synchronized long getTotal(){
+		return total;
+	}
+	
+	/**
+	 * @return the most rows kept, or 0 if every row is kept
+	 */
+	public int getCapacity(){
+		return capacity;
+	}
+	
+	/**
+	 * Find the oldest row kept from a number of rows ever added, without a lock, so it can be paired with one call to getTotal
+	 * @param total a number of rows ever added, from getTotal
+	 * @return the number of the oldest row kept once the given number of rows were added, counted from the first row ever added
+	 */
+	public long getFirst(long total){
+		return (capacity > 0) ? Math.max(start, total - capacity) : start;
+	}
+	
+	/**
+	 * @return the number of columns
+	 */
+	public int getColumns(){
+		return names.length;
+	}
+	
+	/**
+	 * @param column
+	 * @return the name of the given column
+	 */
+	public String getName(int column){
+		return names[column];
+	}
+	
+	/**
+	 * @return a view of this history that can read it, but not change it. The view always shows the current rows
+	 */
+	public View getView(){
+		return view;
+	}
+	
+	/**
+	 * A History that can only be read
+	 */
+	public class View{
+		
+		private View(){}
+		
+		/**
+		 * @see History#get(int, int)
+		 */
+		public double get(int row, int column){
+			return History.this.get(row, column);
+		}
+		
+		/**
+		 * @see History#getRow(int, double[])
+		 */
+		public void getRow(int row, double[] out){
+			History.this.getRow(row, out);
+		}
+		
+		/**
+		 * @see History#getColumn(int, int, int, double[], int)
+		 */
+		public void getColumn(int column, int from, int to, double[] out, int start){
+			History.this.getColumn(column, from, to, out, start);
+		}
+		
+		/**
+		 * @see History#getMin(int)
+		 */
+		public double getMin(int column){
+			return History.this.getMin(column);
+		}
+		
+		/**
+		 * @see History#getMax(int)
+		 */
+		public double getMax(int column){
+			return History.this.getMax(column);
+		}
+		
+		/**
+		 * @see History#getBuckets(int, long, long, long, double[], double[], double[])
+		 */
+		public void getBuckets(int level, long from, long to, long end, double[] mins, double[] maxes, double[] means){
+			History.this.getBuckets(level, from, to, end, mins, maxes, means);
+		}
+		
+		/**
+		 * @see History#writeCsv(Appendable)
+		 */
+		public void writeCsv(Appendable out) throws IOException{
+			History.this.writeCsv(out);
+		}
+		
+		/**
+		 * @see History#size()
+		 */
+		public int size(){
+			return History.this.size();
+		}
+		
+		/**
+		 * @see History#getTotal()
+		 */
+		public long getTotal(){
+			return History.this.getTotal();
+		}
+		
+		/**
+		 * @see History#getFirst(long)
+		 */
+		public long getFirst(long total){
+			return History.this.getFirst(total);
+		}
+		
+		/**
+		 * @see History#getCapacity()
+		 */
+		public int getCapacity(){
+			return capacity;
+		}
+		
+		/**
+		 * @see History#getColumns()
+		 */
+		public int getColumns(){
+			return names.length;
+		}
+		
+		/**
+		 * @see History#getName(int)
+		 */
+		public String getName(int column){
+			return names[column];
+		}
+		
+	}
+	
+}
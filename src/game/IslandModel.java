@@ -0,0 +1,139 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import neuralNet.Net;
+
+/**
+ * Evolves several populations at the same time, each on its own thread, and every few generations sends the best brain of each population to the next one.
+ * Populations are in a ring, population i sends its champion to population i + 1, and the last sends to the first.
+ * Champions are passed through mailboxes without any locks, one slot for each population. There are two sets of mailboxes, used in turns,
+ * so a population never reads a slot that is being written in the same migration, and the brains that arrive are the same no matter which thread finishes first
+ */
+public class IslandModel{
+	
+	/**
+	 * The populations being evolved
+	 */
+	private Population[] islands;
+	
+	/**
+	 * The mailboxes champions are taken from this migration, slot i holds the champion sent by population i
+	 */
+	private AtomicReferenceArray<Net> inbox;
+	/**
+	 * The mailboxes champions are sent to this migration, swapped with inbox after each migration
+	 */
+	private AtomicReferenceArray<Net> outbox;
+	
+	/**
+	 * The number of generations each population evolves on its own before sending its champion
+	 */
+	private int migrationInterval;
+	
+	/**
+	 * The pool that the populations evolve on
+	 */
+	private ForkJoinPool pool;
+	
+	/**
+	 * For each generation, the best fitness of any population, the mutability of that population's best brain, and the average fitness over all populations
+	 */
+	private ArrayList<double[]> data;
+	
+	/**
+	 * @param islands the populations to evolve, all with brains with the same layers
+	 * @param migrationInterval the number of generations each population evolves on its own before sending its champion to the next population
+	 * @param pool the pool to evolve the populations on, it should have at least as many threads as there are populations to use all of them at once
+	 */
+	public IslandModel(Population[] islands, int migrationInterval, ForkJoinPool pool){
+		this.islands = islands;
+		this.migrationInterval = migrationInterval;
+		this.pool = pool;
+		inbox = new AtomicReferenceArray<Net>(islands.length);
+		outbox = new AtomicReferenceArray<Net>(islands.length);
+		data = new ArrayList<double[]>();
+	}
+	
+	/**
+	 * Evolve every population for the given number of generations, sending champions every migrationInterval generations
+	 * @param generations
+	 * @param games the number of seeds to test each brain with, see Population.evolve
+	 */
+	public void evolve(int generations, int games){
+		int done = 0;
+		while(done < generations){
+			int count = Math.min(migrationInterval, generations - done);
+			AtomicReferenceArray<Net> in = inbox;
+			AtomicReferenceArray<Net> out = outbox;
+			
+			ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(islands.length);
+			for(int i = 0; i < islands.length; i++){
+				Population island = islands[i];
+				int from = (i + islands.length - 1) % islands.length;
+				int to = i;
+				tasks.add(pool.submit(() -> {
+					//each slot is only read by one population, so the champion can be taken out
+					Net migrant = in.getAndSet(from, null);
+					if(migrant != null) island.accept(migrant);
+					for(int g = 0; g < count; g++) island.evolve(games);
+					out.set(to, island.getChampion());
+				}));
+			}
+			for(ForkJoinTask<?> t : tasks) t.join();
+			//the champions just sent are taken out next migration
+			inbox = out;
+			outbox = in;
+			
+			for(int g = data.size(); g < islands[0].getData().size(); g++){
+				double[] best = null;
+				double total = 0;
+				for(Population p : islands){
+					double[] d = p.getData().get(g);
+					if(best == null || d[0] > best[0]) best = d;
+					total += d[2];
+				}
+				data.add(new double[]{best[0], best[1], total / islands.length});
+			}
+			done += count;
+		}
+	}
+	
+	/**
+	 * @return a copy of the best brain out of the champions of every population, from the last generation that was tested
+	 */
+	public Net getChampion(){
+		Population best = islands[0];
+		for(Population p : islands){
+			if(p.getChampionFitness() > best.getChampionFitness()) best = p;
+		}
+		return best.getChampion();
+	}
+	
+	/**
+	 * @return the best fitness of any population from the last generation that was tested
+	 */
+	public double getChampionFitness(){
+		double best = Double.NEGATIVE_INFINITY;
+		for(Population p : islands) best = Math.max(best, p.getChampionFitness());
+		return best;
+	}
+	
+	/**
+	 * @return for each generation, the best fitness of any population, the mutability of that population's best brain, and the average fitness over all populations
+	 */
+	public ArrayList<double[]> getData(){
+		return data;
+	}
+	
+	/**
+	 * @return the populations being evolved
+	 */
+	public Population[] getIslands(){
+		return islands;
+	}
+	
+}
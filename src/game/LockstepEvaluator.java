@@ -0,0 +1,203 @@
+package game;
+
+import java.util.Random;
+
+import game.TicTacToe.State;
+
+/**
+ * Tests many brains at once by playing the game of each seed with all of them at the same time, one move at a time.
+ * Brains that make the same moves are on the same board, so they are kept together in a group, and the opponent's move and the state of the game
+ * are only found once for the whole group. A group is split when its brains pick different moves, and each new group continues on its own board.
+ * The random numbers of each seed are found once and shared by every group, so every brain plays exactly the same game as it would on its own.
+ * An evaluator is not thread safe, so each thread should use its own
+ */
+public class LockstepEvaluator{
+	
+	/**
+	 * The moves of each brain
+	 */
+	private PolicyTable[] tables;
+	
+	/**
+	 * True if the brains play as X, false if they play as O
+	 */
+	private boolean playAsX;
+	
+	/**
+	 * The index of each brain, ordered so that the brains in each group are next to each other
+	 */
+	private int[] order;
+	
+	/**
+	 * For each move of the brains in a game, space to sort the brains of a group by the move they make
+	 */
+	private int[][] sorted;
+	
+	/**
+	 * For each move of the brains in a game, the move each brain of a group makes, in the same order as order
+	 */
+	private byte[][] moves;
+	
+	/**
+	 * For each move of the brains in a game, the index in order where the group of each move starts
+	 */
+	private int[][] starts;
+	
+	/**
+	 * The game being played by the brains
+	 */
+	private TicTacToe game;
+	
+	/**
+	 * The random numbers of the seed being played
+	 */
+	private SeedStream rand;
+	
+	/**
+	 * The total score of each brain
+	 */
+	private int[] scores;
+	
+	/**
+	 * @param tables the moves of each brain to test
+	 * @param playAsX true if the brains play as X, false if they play as O
+	 */
+	public LockstepEvaluator(PolicyTable[] tables, boolean playAsX){
+		this.tables = tables;
+		this.playAsX = playAsX;
+		order = new int[tables.length];
+		//a brain makes at most 5 moves in a game
+		sorted = new int[5][tables.length];
+		moves = new byte[5][tables.length];
+		starts = new int[5][10];
+		game = new TicTacToe();
+		rand = new SeedStream();
+	}
+	
+	/**
+	 * Play one game for each of the given seeds with every brain
+	 * @param seeds
+	 * @param start the index of the first seed to play a game with
+	 * @param end the index after the last seed to play a game with
+	 * @param opponent the AI to play against
+	 * @param scores the array to add the score of each game to, one for each brain, 1 for each game the brain won, -1 for each game the brain lost
+	 */
+	public void playGames(int[] seeds, int start, int end, Opponent opponent, int[] scores){
+		this.scores = scores;
+		for(int j = start; j < end; j++){
+			rand.load(seeds[j]);
+			game.reset();
+			for(int i = 0; i < order.length; i++) order[i] = i;
+			if(!playAsX) opponent.makeMove(game, rand);
+			playGroup(0, order.length, 0, opponent);
+		}
+		this.scores = null;
+	}
+	
+	/**
+	 * Make the moves of a group of brains that are all on the current board of the game, and play the rest of the game for each group of brains that make the same move
+	 * @param low the index in order of the first brain of the group
+	 * @param high the index in order after the last brain of the group
+	 * @param depth the number of moves the brains have already made in this game
+	 * @param opponent
+	 */
+	private void playGroup(int low, int high, int depth, Opponent opponent){
+		//find the move of each brain, and sort the brains by their move
+		int rank = game.getRank();
+		byte[] m = moves[depth];
+		int[] s = starts[depth];
+		for(int k = 0; k < s.length; k++) s[k] = 0;
+		for(int i = low; i < high; i++){
+			m[i] = (byte)tables[order[i]].getMove(rank);
+			s[m[i] + 1]++;
+		}
+		s[0] = low;
+		for(int k = 1; k < s.length; k++) s[k] += s[k - 1];
+		int[] sort = sorted[depth];
+		for(int i = low; i < high; i++) sort[s[m[i]]++] = order[i];
+		System.arraycopy(sort, low, order, low, high - low);
+		
+		//play each group of brains that made the same move, the group of move k ends where s[k] was moved to
+		int groupStart = low;
+		for(int k = 0; k < 9; k++){
+			int groupEnd = s[k];
+			if(groupEnd == groupStart) continue;
+			
+			int cell = NetPlayer.getCell(k);
+			game.makeMove(cell);
+			if(game.getState() == State.PLAY){
+				int used = rand.getUsed();
+				int reply = opponent.getMove(game, rand);
+				game.makeMove(reply);
+				if(game.getState() == State.PLAY) playGroup(groupStart, groupEnd, depth + 1, opponent);
+				else addScore(groupStart, groupEnd);
+				game.undoMove(reply);
+				rand.setUsed(used);
+			}
+			else addScore(groupStart, groupEnd);
+			game.undoMove(cell);
+			
+			groupStart = groupEnd;
+		}
+	}
+	
+	/**
+	 * Add the score of the current game, which must be over, to each brain in a group
+	 * @param low the index in order of the first brain of the group
+	 * @param high the index in order after the last brain of the group
+	 */
+	private void addScore(int low, int high){
+		int score = NetPlayer.getScore(game, playAsX);
+		if(score == 0) return;
+		for(int i = low; i < high; i++) scores[order[i]] += score;
+	}
+	
+	/**
+	 * The random numbers a Random object with a given seed gives from nextDouble, found once so that they can be given again to each group of brains
+	 */
+	private static class SeedStream extends Random{
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * The numbers of the current seed, the opponent takes at most one for each of its 5 moves
+		 */
+		private double[] numbers;
+		/**
+		 * The number of numbers that have been given out
+		 */
+		private int used;
+		/**
+		 * The Random object used to find the numbers
+		 */
+		private Random source;
+		
+		public SeedStream(){
+			numbers = new double[5];
+			source = new Random();
+		}
+		
+		/**
+		 * Find the numbers for the given seed, and start giving them out from the first one
+		 * @param seed
+		 */
+		public void load(long seed){
+			source.setSeed(seed);
+			for(int i = 0; i < numbers.length; i++) numbers[i] = source.nextDouble();
+			used = 0;
+		}
+		
+		@Override
+		public double nextDouble(){
+			return numbers[used++];
+		}
+		
+		public int getUsed(){
+			return used;
+		}
+		
+		public void setUsed(int used){
+			this.used = used;
+		}
+	}
+	
+}
@@ -1,18 +1,31 @@
 package game;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 import game.TicTacToe.State;
-import game.TicTacToe.Type;
 import menu.Main;
+import neuralNet.Activation;
+import neuralNet.InferenceContext;
 import neuralNet.Net;
+import neuralNet.NetArena;
 
 /**
  * An object that keeps track of a neural net playing tic tac toe and allows for it to evolve
  */
 public class NetPlayer{
 	
+	/**
+	 * The most games that are played as one task when brains are tested in parallel
+	 */
+	public static final int GAME_CHUNK = 250;
+	
 	private Net brain;
 	
 	private int timesTrained;
@@ -23,16 +36,91 @@ public class NetPlayer{
 	private boolean playAsX;
 	
 	/**
-	 * The data for this NEtPlayer that keeps track of the fitness and mutability history
+	 * The pool used to test brains in parallel when training, or null to test them one after another on the training thread
+	 */
+	private ForkJoinPool pool;
+	
+	/**
+	 * The way brains are tested when training
+	 */
+	private FitnessMode fitnessMode;
+	
+	/**
+	 * The AIs each brain plays against when training
+	 */
+	private Opponent[] opponents;
+	
+	/**
+	 * The number of games played in the last call to train
+	 */
+	private int lastGamesPlayed;
+	/**
+	 * The number of games that did not need to be played in the last call to train, because a brain played the same as another brain, or was dropped by FitnessMode.RACING
+	 */
+	private int lastGamesSaved;
+	/**
+	 * The number of brains in the last call to train that played exactly the same as another brain of the same generation, and were given its score instead of being tested
+	 */
+	private int lastDuplicates;
+	
+	/**
+	 * The seed that every random number used by this NetPlayer comes from, two NetPlayers with the same seed and settings train the same way
+	 */
+	private long seed;
+	/**
+	 * The random numbers used to make the brains and seeds of each call to train. Each new brain is mutated with its own stream split from this one, 
+	 * so brains can be mutated on any number of threads without sharing a Random object, and still come out the same
+	 */
+	private SplittableRandom random;
+	
+	/**
+	 * The nets that each generation of brains is mutated into, made again when the number of copies changes
+	 */
+	private NetArena arena;
+	/**
+	 * The tables of moves for each brain of a generation, reused every generation
+	 */
+	private PolicyTable[] tables;
+	/**
+	 * The seeds of the games of each generation, reused every generation with the same number of games
+	 */
+	private int[] seeds;
+	
+	/**
+	 * The names of the columns of the history of this NetPlayer
+	 */
+	public static final String[] DATA_NAMES = new String[]{"Fitness", "Mutability", "Duplicate rate", "Perfect move rate"};
+	
+	/**
+	 * The data for this NEtPlayer that keeps track of the fitness, mutability, duplicate rate, and perfect move rate history
 	 */
-	private ArrayList<double[]> data;
+	private History data;
 	
 	public NetPlayer(){
+		this(new SplittableRandom().nextLong());
+	}
+	
+	/**
+	 * @param seed the seed that every random number used by this NetPlayer comes from
+	 */
+	public NetPlayer(long seed){
+		this(seed, Main.LAYERS);
+	}
+	
+	/**
+	 * @param seed the seed that every random number used by this NetPlayer comes from
+	 * @param layers the nodes in each layer of the brain, the first and last must both be 9
+	 */
+	public NetPlayer(long seed, int... layers){
 		playAsX = true;
 		
-		brain = new Net(Main.LAYERS);
+		this.seed = seed;
+		random = new SplittableRandom(seed);
+		brain = new Net(random.split(), layers);
+		fitnessMode = FitnessMode.SAMPLED;
+		opponents = new Opponent[]{Opponent.RANDOM, Opponent.SMART};
 		timesTrained = 0;
-		data = new ArrayList<double[]>();
+		data = new History(DATA_NAMES);
 	}
 	
 	public void setPlayAsX(boolean x){
@@ -46,72 +134,21 @@ public class NetPlayer{
 	 * Makes copies number of mutated versions of this object's brain, then tests them with times number of games, where each game has randomly determined moves. 
 	 * The random seed used to determine the moves for each game is the same across the testing of each brain, meaning if 2 brains make the same moves every time, 
 	 * same game will happen. The highest rated brain from this method call will replace the brain of this object. 
-	 * This also adds in a test with the smart AI that counts for 50% of the total end value
+	 * Each brain plays one game against each of the opponents of this NetPlayer for each seed, by default the random AI and the smart AI, which each count for the same part of the total end value
 	 * @param times
 	 * @param copies
 	 * @param playX true if this test should play as X, false if it should play as O
 	 */
 	public void train(int times, int copies){
 		//generate the new brains, the current brain of this object is index 0
-		Net[] newBrains = new Net[copies + 1];
-		for(int i = 1; i < newBrains.length; i++) newBrains[i] = brain.getMutatedNet();
-		newBrains[0] = brain;
-		
-		//create a list to store all the values of the test results from each brain
-		double[] values = new double[copies + 1];
-		for(int i = 0; i < values.length; i++) values[i] = 0;
+		Net[] newBrains = getMutatedBrains(copies);
 		
 		//create a list of all the seeds for testing
-		int[] seeds = new int[times];
-		for(int i = 0; i < seeds.length; i++) seeds[i] = (int)(Math.random() * Integer.MAX_VALUE);
-		
-		//test every new brain
-		for(int i = 0; i < newBrains.length; i++){
-			for(int j = 0; j < seeds.length; j++){
-				Random rand = new Random(seeds[j]);
-				TicTacToe testGame = new TicTacToe();
-				if(!playAsX) testGame.makeRandomMove(rand);
-				while(testGame.getState() == State.PLAY){
-					makeMove(testGame, newBrains[i]);
-					testGame.makeRandomMove(rand);
-				}
-				//add 1 if the Brain won, add -1 if they lost, do nothing if they tied
-				if(testGame.getState() == State.X_WIN){
-					if(playAsX) values[i]++;
-					else values[i]--;
-				}
-				else if(testGame.getState() == State.O_WIN){
-					if(playAsX) values[i]--;
-					else values[i]++;
-				}
-			}
-		}
-		
-		//test the brains with the smart AI, uses the first seed in the list
-		for(int i = 0; i < newBrains.length; i++){
-			for(int j = 0; j < seeds.length; j++){
-				Random rand = new Random(seeds[j]);
-				TicTacToe testGame = new TicTacToe();
-				if(!playAsX) testGame.makeSmartMove(rand);
-				while(testGame.getState() == State.PLAY){
-					makeMove(testGame, newBrains[i]);
-					testGame.makeSmartMove(rand);
-				}
-				//add 1 if the Brain won, add -1 if they lost, do nothing if they tied
-				if(testGame.getState() == State.X_WIN){
-					if(playAsX) values[i]++;
-					else values[i]--;
-				}
-				else if(testGame.getState() == State.O_WIN){
-					if(playAsX) values[i]--;
-					else values[i]++;
-				}
-			}
-			
-		}
+		if(seeds == null || seeds.length != times) seeds = new int[times];
+		for(int i = 0; i < seeds.length; i++) seeds[i] = random.nextInt(Integer.MAX_VALUE);
 		
-		//find the averages for values based on the number of games to play
-		for(int i = 0; i < values.length; i++) values[i] /= seeds.length * 2;
+		//test every new brain, once with each opponent
+		double[] values = testBrains(newBrains, seeds);
 		
 		//find the brain with the the highest value and set that brain to the brain of this object
 		int high = -1;
@@ -119,12 +156,248 @@ public class NetPlayer{
 			if(high == -1 || values[i] > values[high]) high = i;
 		}
 		brain = newBrains[high];
+		//keep the new brain from being written over by the next generation
+		if(high != 0) arena.flip();
 		
-		data.add(new double[]{values[high], brain.getMutability()});
+		data.add(values[high], brain.getMutability(), (double)lastDuplicates / newBrains.length, Solver.getAgreement(tables[high], playAsX));
 		
 		timesTrained++;
 	}
 	
+	/**
+	 * Make the given number of mutated versions of the brain of this NetPlayer in the arena, in parallel if this NetPlayer has a pool. 
+	 * Each spot of the arena has its own random numbers, so the brains are the same with or without a pool
+	 * @param copies
+	 * @return the current brain at index 0, followed by the new brains. This array belongs to the arena, so it should not be kept
+	 */
+	private Net[] getMutatedBrains(int copies){
+		if(arena == null || !arena.fits(brain, copies)) arena = new NetArena(brain, copies, random);
+		Net[] newBrains = arena.startGeneration(brain);
+		if(pool == null){
+			for(int i = 1; i < newBrains.length; i++) arena.mutate(i);
+			return newBrains;
+		}
+		
+		NetArena a = arena;
+		ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(newBrains.length);
+		for(int i = 1; i < newBrains.length; i++){
+			int index = i;
+			tasks.add(pool.submit(() -> a.mutate(index)));
+		}
+		for(ForkJoinTask<?> t : tasks) t.join();
+		return newBrains;
+	}
+	
+	/**
+	 * Make sure there is a reusable table of moves for each of the given number of brains
+	 * @param count
+	 */
+	private void ensureTables(int count){
+		if(tables != null && tables.length == count) return;
+		tables = new PolicyTable[count];
+		for(int i = 0; i < count; i++) tables[i] = new PolicyTable();
+	}
+	
+	/**
+	 * Test each of the given brains against the random AI and the smart AI, using the fitness mode of this NetPlayer. 
+	 * Brains that make the same move on every board play every game the same way, so only the first of them is tested, and the rest are given its score. 
+	 * Scores are added up as whole numbers before being averaged, so the results are the same no matter the order the games finish in
+	 * @param brains
+	 * @param seeds the seeds for the games to play, one game against each AI is played for each seed
+	 * @return the average score of each brain, in the same order as brains
+	 */
+	private double[] testBrains(Net[] brains, int[] seeds){
+		PolicyTable[] tables = getTables(brains);
+		
+		int[] sameAs = new int[tables.length];
+		PolicyTable[] unique = findUnique(tables, sameAs);
+		lastDuplicates = tables.length - unique.length;
+		double[] uniqueValues = testTables(unique, seeds);
+		if(fitnessMode != FitnessMode.EXACT) lastGamesSaved += lastDuplicates * seeds.length * opponents.length;
+		
+		double[] values = new double[brains.length];
+		for(int i = 0; i < values.length; i++) values[i] = uniqueValues[sameAs[i]];
+		return values;
+	}
+	
+	/**
+	 * Find one table for each different way the brains of the given tables play. 
+	 * Fingerprints are compared first, so tables are only compared move by move when they almost certainly are the same
+	 * @param tables
+	 * @param sameAs the array to put the index in the returned array of the table that plays the same as each of the given tables
+	 * @return the tables that play differently from every table before them, in the same order as tables
+	 */
+	private static PolicyTable[] findUnique(PolicyTable[] tables, int[] sameAs){
+		PolicyTable[] unique = new PolicyTable[tables.length];
+		int count = 0;
+		for(int i = 0; i < tables.length; i++){
+			int j = 0;
+			while(j < count && !unique[j].playsSameAs(tables[i])) j++;
+			if(j == count) unique[count++] = tables[i];
+			sameAs[i] = j;
+		}
+		return Arrays.copyOf(unique, count);
+	}
+	
+	/**
+	 * Test the brains with each of the given tables, using the fitness mode of this NetPlayer. 
+	 * If this NetPlayer has a pool, the brains and groups of their games are tested in parallel on the pool
+	 * @param tables
+	 * @param seeds the seeds for the games to play, one game against each AI is played for each seed
+	 * @return the average score of each brain, in the same order as tables
+	 */
+	private double[] testTables(PolicyTable[] tables, int[] seeds){
+		if(fitnessMode == FitnessMode.RACING){
+			RacingEvaluator racing = new RacingEvaluator(pool, opponents);
+			double[] values = racing.evaluate(tables, playAsX, seeds);
+			lastGamesPlayed = racing.getGamesPlayed();
+			lastGamesSaved = racing.getGamesSaved();
+			return values;
+		}
+		
+		if(fitnessMode == FitnessMode.LOCKSTEP) return testTablesLockstep(tables, seeds);
+		
+		double[] values = new double[tables.length];
+		if(fitnessMode == FitnessMode.EXACT) lastGamesPlayed = 0;
+		else lastGamesPlayed = tables.length * seeds.length * opponents.length;
+		lastGamesSaved = 0;
+		if(pool == null){
+			for(int i = 0; i < tables.length; i++){
+				PolicyTable table = tables[i];
+				if(fitnessMode == FitnessMode.EXACT) values[i] = getExactFitness(table);
+				else{
+					int score = 0;
+					for(Opponent o : opponents) score += playGames(table, seeds, 0, seeds.length, o, playAsX);
+					values[i] = score / ((double)seeds.length * opponents.length);
+				}
+			}
+		}
+		else{
+			BrainTest[] tests = new BrainTest[tables.length];
+			for(int i = 0; i < tests.length; i++) tests[i] = new BrainTest(tables[i], seeds, values, i);
+			pool.invoke(new RecursiveAction(){
+				private static final long serialVersionUID = 1L;
+				@Override
+				protected void compute(){
+					invokeAll(tests);
+				}
+			});
+		}
+		return values;
+	}
+	
+	/**
+	 * Test the brains with each of the given tables with a LockstepEvaluator, against the random AI and the smart AI. 
+	 * If this NetPlayer has a pool, groups of seeds are played in parallel, each with its own evaluator
+	 * @param tables
+	 * @param seeds the seeds for the games to play, one game against each AI is played for each seed
+	 * @return the average score of each brain, in the same order as tables
+	 */
+	private double[] testTablesLockstep(PolicyTable[] tables, int[] seeds){
+		int[] scores = new int[tables.length];
+		if(pool == null){
+			LockstepEvaluator lockstep = new LockstepEvaluator(tables, playAsX);
+			for(Opponent o : opponents) lockstep.playGames(seeds, 0, seeds.length, o, scores);
+		}
+		else{
+			ArrayList<ForkJoinTask<int[]>> tasks = new ArrayList<ForkJoinTask<int[]>>();
+			for(int start = 0; start < seeds.length; start += GAME_CHUNK){
+				int first = start;
+				int end = Math.min(seeds.length, start + GAME_CHUNK);
+				tasks.add(pool.submit(() -> {
+					int[] s = new int[tables.length];
+					LockstepEvaluator lockstep = new LockstepEvaluator(tables, playAsX);
+					for(Opponent o : opponents) lockstep.playGames(seeds, first, end, o, s);
+					return s;
+				}));
+			}
+			for(ForkJoinTask<int[]> t : tasks){
+				int[] s = t.join();
+				for(int i = 0; i < scores.length; i++) scores[i] += s[i];
+			}
+		}
+		
+		lastGamesPlayed = tables.length * seeds.length * opponents.length;
+		lastGamesSaved = 0;
+		double[] values = new double[tables.length];
+		for(int i = 0; i < values.length; i++) values[i] = scores[i] / ((double)seeds.length * opponents.length);
+		return values;
+	}
+	
+	/**
+	 * Load the table of moves for each of the given brains, in parallel if this NetPlayer has a pool
+	 * @param brains
+	 * @return the tables, in the same order as brains. The tables are reused by the next generation, so they should not be kept
+	 */
+	private PolicyTable[] getTables(Net[] brains){
+		ensureTables(brains.length);
+		PolicyTable[] tables = this.tables;
+		if(pool == null){
+			for(int i = 0; i < brains.length; i++) tables[i].load(brains[i], playAsX);
+			return tables;
+		}
+		
+		ArrayList<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(brains.length);
+		for(int i = 0; i < brains.length; i++){
+			Net b = brains[i];
+			PolicyTable table = tables[i];
+			tasks.add(pool.submit(() -> table.load(b, playAsX)));
+		}
+		for(ForkJoinTask<?> t : tasks) t.join();
+		return tables;
+	}
+	
+	/**
+	 * @param table the moves of a brain
+	 * @return the exact average score of the brain against each opponent, over every game that could be played
+	 */
+	private double getExactFitness(PolicyTable table){
+		ExactEvaluator e = ExactEvaluator.forThread();
+		double total = 0;
+		for(Opponent o : opponents) total += e.getExpectedScore(table, playAsX, o);
+		return total / opponents.length;
+	}
+	
+	/**
+	 * Play one game for each of the given seeds with the brain that made the given table. 
+	 * The brain's moves are looked up in the table, so the brain itself does not need to be run for any move. 
+	 * The same game and Random objects are reused for every game, so no objects are created
+	 * @param table the moves of the brain
+	 * @param seeds
+	 * @param start the index of the first seed to play a game with
+	 * @param end the index after the last seed to play a game with
+	 * @param opponent the AI to play against
+	 * @param playAsX true if the brain plays as X, false if it plays as O
+	 * @return the total score of the games, 1 for each game the brain won, -1 for each game the brain lost
+	 */
+	static int playGames(PolicyTable table, int[] seeds, int start, int end, Opponent opponent, boolean playAsX){
+		Random rand = new Random();
+		TicTacToe testGame = new TicTacToe();
+		int score = 0;
+		for(int j = start; j < end; j++){
+			rand.setSeed(seeds[j]);
+			testGame.reset();
+			if(!playAsX) opponent.makeMove(testGame, rand);
+			while(testGame.getState() == State.PLAY){
+				table.makeMove(testGame);
+				opponent.makeMove(testGame, rand);
+			}
+			score += getScore(testGame, playAsX);
+		}
+		return score;
+	}
+	
+	/**
+	 * @param game a game that is over
+	 * @param playAsX true if the brain plays as X, false if it plays as O
+	 * @return 1 if the brain won the given game, -1 if it lost, 0 if it tied
+	 */
+	static int getScore(TicTacToe game, boolean playAsX){
+		if(game.getState() == State.X_WIN) return playAsX ? 1 : -1;
+		if(game.getState() == State.O_WIN) return playAsX ? -1 : 1;
+		return 0;
+	}
+	
 	/**
 	 * Calculate the inputs for the given based on the given game
 	 * @param game
@@ -132,50 +405,171 @@ public class NetPlayer{
 	 */
 	public void sendBrainInputs(TicTacToe game, Net brain){
 		double[] inputs = new double[9];
-		for(int k = 0; k < inputs.length; k++){
-			if(game.getBoard()[k % 3][k / 3] == TicTacToe.Type.X) inputs[k] = 1;
-			else if(game.getBoard()[k % 3][k / 3] == TicTacToe.Type.O) inputs[k] = -1;
-			else inputs[k] = 0;
-		}
+		writeInputs(game, inputs, 0);
 		brain.feedInputs(inputs);
 		brain.calculateValues();
 	}
 	
 	/**
-	 * Make the given brain make a decision as to what to play based on the given board
+	 * Put the 9 inputs a brain uses for the given game into the given array. X is 1, O is -1, and empty is 0
+	 * @param game
+	 * @param inputs
+	 * @param start the index in inputs to put the first input
+	 */
+	public static void writeInputs(TicTacToe game, double[] inputs, int start){
+		int x = game.getXMask();
+		int o = game.getOMask();
+		for(int k = 0; k < 9; k++){
+			int bit = 1 << getCell(k);
+			if((x & bit) != 0) inputs[start + k] = 1;
+			else if((o & bit) != 0) inputs[start + k] = -1;
+			else inputs[start + k] = 0;
+		}
+	}
+	
+	/**
+	 * @param k the index of a brain input or output
+	 * @return the bit of the board space that index k is for, the space at (k % 3, k / 3)
+	 */
+	public static int getCell(int k){
+		return (k % 3) * 3 + k / 3;
+	}
+	
+	/**
+	 * Make the given brain make a decision as to what to play based on the given board. 
+	 * The brain is run with the context of the current thread, so no new objects are created, and the values stored in the brain are not changed
 	 * @param game
 	 * @param brain
 	 */
 	public void makeMove(TicTacToe game, Net brain){
-		sendBrainInputs(game, brain);
-		
-		//get the brain outputs
-		double[] out = brain.getOutputs();
-		
-		//make list of indexes to try to play at
-		int[] index = new int[out.length];
-		for(int i = 0; i < index.length; i++) index[i] = i;
-		
-		//sort the list so that the indexes are in descending order of the output values of the brain
-		for(int i = 0; i < index.length; i++){
-			int high = -1;
-			for(int j = i; j < index.length; j++){
-				if(high == -1 || out[high] < out[j]) high = j;
-			}
-			int temp = index[i];
-			index[i] = index[high];
-			index[high] = temp;
-		}
-		
-		//play first move that can be played with the most preferred index
-		Type[][] b = game.getBoard();
-		for(int i = 0; i < index.length; i++){
-			int useI = index[i];
-			if(b[useI % 3][useI / 3] == Type.EMPTY){
-				game.makeMove(useI % 3, useI / 3);
-				break;
+		InferenceContext c = InferenceContext.forThread().prepare(brain);
+		writeInputs(game, c.getInputs(), 0);
+		brain.calculateValues(c);
+		playBestMove(game, c.getOutputs());
+	}
+	
+	/**
+	 * Play the move on the given game that the brain with the given outputs prefers, out of all the moves that can be played
+	 * @param game
+	 * @param out the output values of a brain, one for each index of the board
+	 */
+	public static void playBestMove(TicTacToe game, double[] out){
+		int taken = game.getXMask() | game.getOMask();
+		int takenIndexes = 0;
+		for(int k = 0; k < 9; k++){
+			if((taken & (1 << getCell(k))) != 0) takenIndexes |= 1 << k;
+		}
+		int k = getMoveIndex(out, 0, takenIndexes);
+		if(k != -1) game.makeMove(getCell(k));
+	}
+	
+	/**
+	 * Find the index a brain plays at. The indexes are tried in the order of a selection sort that compares the outputs at each place in the list,
+	 * not the outputs of the indexes that have been moved to those places, so the first index tried always has the highest output,
+	 * but the indexes after it are not always in descending order of output. This is the order brains have always played in, 
+	 * so it is kept to keep the moves, and the fitness, of every brain the same
+	 * @param out the output values of a brain, one for each index of the board
+	 * @param start the index in out of the value for the first index of the board
+	 * @param taken a bit for each index that can't be played at, bit k for index k
+	 * @return the index to play at, or -1 if every index is taken
+	 */
+	public static int getMoveIndex(double[] out, int start, int taken){
+		//the list of indexes, 4 bits for each place in the list, so no array is needed
+		long index = 0x876543210L;
+		for(int i = 0; i < 9; i++){
+			int high = i;
+			for(int j = i + 1; j < 9; j++){
+				if(out[start + high] < out[start + j]) high = j;
 			}
+			int a = (int)(index >>> (i * 4)) & 15;
+			int b = (int)(index >>> (high * 4)) & 15;
+			index &= ~(15L << (i * 4)) & ~(15L << (high * 4));
+			index |= (long)b << (i * 4) | (long)a << (high * 4);
+			if((taken & (1 << b)) == 0) return b;
 		}
+		return -1;
+	}
+	
+	/**
+	 * Set the pool used to test brains in parallel when training. The brain picked by training is the same with or without a pool
+	 * @param pool the pool, or null to test brains one after another on the thread that is training
+	 */
+	public void setPool(ForkJoinPool pool){
+		this.pool = pool;
+	}
+	
+	/**
+	 * @return the pool used to test brains in parallel when training, or null if brains are tested one after another
+	 */
+	public ForkJoinPool getPool(){
+		return pool;
+	}
+	
+	/**
+	 * Set the way brains are tested when training. With FitnessMode.EXACT, the number of games given to train is not used
+	 * @param fitnessMode
+	 */
+	public void setFitnessMode(FitnessMode fitnessMode){
+		this.fitnessMode = fitnessMode;
+	}
+	
+	/**
+	 * Set the AIs each brain plays against when training, every opponent counts for the same part of a brain's score
+	 * @param opponents at least one opponent
+	 */
+	public void setOpponents(Opponent... opponents){
+		this.opponents = opponents.clone();
+	}
+	
+	/**
+	 * @return the AIs each brain plays against when training
+	 */
+	public Opponent[] getOpponents(){
+		return opponents.clone();
+	}
+	
+	/**
+	 * @return the way brains are tested when training
+	 */
+	public FitnessMode getFitnessMode(){
+		return fitnessMode;
+	}
+	
+	/**
+	 * @return the number of games played in the last call to train
+	 */
+	public int getLastGamesPlayed(){
+		return lastGamesPlayed;
+	}
+	
+	/**
+	 * @return the number of games that did not need to be played in the last call to train, 
+	 * 	because a brain played the same as another brain, or FitnessMode.RACING stopped testing brains early
+	 */
+	public int getLastGamesSaved(){
+		return lastGamesSaved;
+	}
+	
+	/**
+	 * @return the number of brains in the last call to train that played exactly the same as another brain of the same generation, and were not tested
+	 */
+	public int getLastDuplicates(){
+		return lastDuplicates;
+	}
+	
+	/**
+	 * @return the seed that every random number used by this NetPlayer comes from
+	 */
+	public long getSeed(){
+		return seed;
+	}
+	
+	/**
+	 * Set the way the brain of this NetPlayer calculates the sigmoid of each node, every brain evolved from it will use the same activation
+	 * @param activation
+	 */
+	public void setActivation(Activation activation){
+		brain.setActivation(activation);
 	}
 	
 	/**
@@ -194,8 +588,90 @@ public class NetPlayer{
 		return timesTrained;
 	}
 	
-	public ArrayList<double[]> getData(){
-		return data;
+	/**
+	 * @return a view of the fitness, mutability, duplicate rate, and perfect move rate of each generation, see DATA_NAMES
+	 */
+	public History.View getData(){
+		return data.getView();
+	}
+	
+	/**
+	 * Only keep the history of the most recent generations, so training can run for any number of generations in the same memory. 
+	 * The most recent generations already recorded are kept, in a new history, so a view from getData made before this is called keeps showing the old history
+	 * @param capacity the number of generations to keep, or 0 to keep every generation
+	 */
+	public void setHistoryCapacity(int capacity){
+		data = data.copy(capacity);
+	}
+	
+	/**
+	 * Tests one brain against both AIs with its table, by splitting its games into groups that can be played in parallel
+	 */
+	private class BrainTest extends RecursiveAction{
+		private static final long serialVersionUID = 1L;
+		
+		private PolicyTable table;
+		private int[] seeds;
+		/**
+		 * The array to put the average score of the brain in
+		 */
+		private double[] values;
+		/**
+		 * The index in values for the brain
+		 */
+		private int index;
+		
+		public BrainTest(PolicyTable table, int[] seeds, double[] values, int index){
+			this.table = table;
+			this.seeds = seeds;
+			this.values = values;
+			this.index = index;
+		}
+		
+		@Override
+		protected void compute(){
+			if(fitnessMode == FitnessMode.EXACT){
+				values[index] = getExactFitness(table);
+				return;
+			}
+			GamesTest[] tests = new GamesTest[opponents.length];
+			for(int i = 0; i < tests.length; i++) tests[i] = new GamesTest(table, seeds, 0, seeds.length, opponents[i]);
+			invokeAll(tests);
+			int score = 0;
+			for(GamesTest t : tests) score += t.join();
+			values[index] = score / ((double)seeds.length * opponents.length);
+		}
+	}
+	
+	/**
+	 * Plays a range of a brain's games, splitting the range in half until each part has at most GAME_CHUNK games
+	 */
+	private class GamesTest extends RecursiveTask<Integer>{
+		private static final long serialVersionUID = 1L;
+		
+		private PolicyTable table;
+		private int[] seeds;
+		private int start;
+		private int end;
+		private Opponent opponent;
+		
+		public GamesTest(PolicyTable table, int[] seeds, int start, int end, Opponent opponent){
+			this.table = table;
+			this.seeds = seeds;
+			this.start = start;
+			this.end = end;
+			this.opponent = opponent;
+		}
+		
+		@Override
+		protected Integer compute(){
+			if(end - start <= GAME_CHUNK) return playGames(table, seeds, start, end, opponent, playAsX);
+			int middle = (start + end) / 2;
+			GamesTest low = new GamesTest(table, seeds, start, middle, opponent);
+			GamesTest high = new GamesTest(table, seeds, middle, end, opponent);
+			invokeAll(low, high);
+			return low.join() + high.join();
+		}
 	}
 	
 }
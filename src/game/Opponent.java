@@ -0,0 +1,83 @@
+package game;
+
+import java.util.Random;
+
+/**
+ * The AIs a brain can play against when it is being tested
+ */
+public enum Opponent{
+	
+	/**
+	 * Plays on a random empty space
+	 */
+	RANDOM{
+		@Override
+		public int getMove(TicTacToe game, Random rand){
+			return game.getRandomMove(rand);
+		}
+		
+		@Override
+		public int getChoices(TicTacToe game){
+			return game.getEmptyMask();
+		}
+	},
+	
+	/**
+	 * Wins if it can, blocks the other player if it can't win, and plays on a random empty space otherwise
+	 */
+	SMART{
+		@Override
+		public int getMove(TicTacToe game, Random rand){
+			return game.getSmartMove(rand);
+		}
+		
+		@Override
+		public int getChoices(TicTacToe game){
+			int move = game.getWinningMove(game.isXTurn());
+			if(move == -1) move = game.getWinningMove(!game.isXTurn());
+			if(move != -1) return 1 << move;
+			return game.getEmptyMask();
+		}
+	},
+	
+	/**
+	 * Plays perfectly, picking from the moves the Solver finds to be best, so it never loses
+	 */
+	PERFECT{
+		@Override
+		public int getMove(TicTacToe game, Random rand){
+			return Solver.getBestMove(game, rand);
+		}
+		
+		@Override
+		public int getChoices(TicTacToe game){
+			return Solver.getBestMoves(game);
+		}
+	};
+	
+	/**
+	 * Pick the space this opponent plays at in the given game
+	 * @param game
+	 * @param rand the Random object deciding the random moves of this opponent
+	 * @return the bit of the space, i * 3 + j for row i and column j, or -1 if there are no empty spaces
+	 */
+	public abstract int getMove(TicTacToe game, Random rand);
+	
+	/**
+	 * Get every space this opponent might play at in the given game, each one is equally likely to be picked by getMove
+	 * @param game
+	 * @return the spaces, space (i, j) is bit i * 3 + j
+	 */
+	public abstract int getChoices(TicTacToe game);
+	
+	/**
+	 * Make the move of this opponent in the given game
+	 * @param game
+	 * @param rand the Random object deciding the random moves of this opponent
+	 */
+	public void makeMove(TicTacToe game, Random rand){
+		int move = getMove(game, rand);
+		if(move != -1) game.makeMove(move);
+	}
+	
+}
@@ -0,0 +1,208 @@
+package game;
+
+import neuralNet.InferenceContext;
+import neuralNet.Net;
+
+/**
+ * The move a brain makes on every board it can be given, calculated all at once so that games can be played without running the brain for each move.
+ * Boards are found by their rank, see BoardIndex
+ */
+public class PolicyTable{
+	
+	/**
+	 * The ranks of every board that can happen in a game that is still being played, and where it is X's turn
+	 */
+	private static final int[] X_BOARDS;
+	/**
+	 * The ranks of every board that can happen in a game that is still being played, and where it is O's turn
+	 */
+	private static final int[] O_BOARDS;
+	/**
+	 * The brain inputs for each board in X_BOARDS, one row of 9 after another
+	 */
+	private static final double[] X_INPUTS;
+	/**
+	 * The brain inputs for each board in O_BOARDS, one row of 9 after another
+	 */
+	private static final double[] O_INPUTS;
+	
+	static{
+		int[][] found = new int[2][BoardIndex.NUM_POSITIONS];
+		int[] counts = new int[2];
+		for(int p = 0; p < BoardIndex.NUM_POSITIONS; p++){
+			int rank = BoardIndex.getPositionRank(p);
+			int x = BoardIndex.getXMask(rank);
+			int o = BoardIndex.getOMask(rank);
+			if((x | o) == TicTacToe.FULL || TicTacToe.hasLine(x) || TicTacToe.hasLine(o)) continue;
+			int side = (Integer.bitCount(x) == Integer.bitCount(o)) ? 0 : 1;
+			found[side][counts[side]++] = rank;
+		}
+		X_BOARDS = new int[counts[0]];
+		O_BOARDS = new int[counts[1]];
+		System.arraycopy(found[0], 0, X_BOARDS, 0, X_BOARDS.length);
+		System.arraycopy(found[1], 0, O_BOARDS, 0, O_BOARDS.length);
+		X_INPUTS = getInputs(X_BOARDS);
+		O_INPUTS = getInputs(O_BOARDS);
+	}
+	
+	/**
+	 * The index of the brain output for the move to make for each board rank, or -1 if there is no move for that board
+	 */
+	private byte[] moves;
+	
+	/**
+	 * True if the moves in this table are for a brain playing as X, false for O
+	 */
+	private boolean playAsX;
+	
+	/**
+	 * A hash of the move made on every board in this table, two tables with the same moves always have the same fingerprint
+	 */
+	private long fingerprint;
+	
+	/**
+	 * Calculate the moves the given brain makes on every board where it is the brain's turn. All the boards are given to the brain in one batch
+	 * @param brain
+	 * @param playAsX true if the brain plays as X, false if it plays as O
+	 */
+	public PolicyTable(Net brain, boolean playAsX){
+		this();
+		load(brain, playAsX);
+	}
+	
+	/**
+	 * Create a table with no moves, use load to give it the moves of a brain
+	 */
+	public PolicyTable(){
+		moves = new byte[BoardIndex.NUM_RANKS];
+		for(int i = 0; i < moves.length; i++) moves[i] = -1;
+	}
+	
+	/**
+	 * Replace the moves in this table with the moves the given brain makes on every board where it is the brain's turn, without creating any new objects. 
+	 * A table can be loaded on any thread, but not on two threads at once
+	 * @param brain
+	 * @param playAsX true if the brain plays as X, false if it plays as O
+	 */
+	public void load(Net brain, boolean playAsX){
+		int[] boards = playAsX ? X_BOARDS : O_BOARDS;
+		double[] inputs = playAsX ? X_INPUTS : O_INPUTS;
+		InferenceContext c = InferenceContext.forThread();
+		double[] outputs = c.getBatchOutputs(inputs.length);
+		brain.calculateBatch(c, inputs, outputs, boards.length);
+		
+		//the boards of the other player are cleared in case this table was last loaded for the other player
+		int[] others = playAsX ? O_BOARDS : X_BOARDS;
+		for(int b = 0; b < others.length; b++) moves[others[b]] = -1;
+		for(int b = 0; b < boards.length; b++){
+			//the same choice as NetPlayer.playBestMove
+			int taken = 0;
+			for(int k = 0; k < 9; k++){
+				if(inputs[b * 9 + k] != 0) taken |= 1 << k;
+			}
+			moves[boards[b]] = (byte)NetPlayer.getMoveIndex(outputs, b * 9, taken);
+		}
+		
+		this.playAsX = playAsX;
+		fingerprint = findFingerprint();
+	}
+	
+	/**
+	 * @return a hash of the move made on every board where it is the brain's turn, in the order the boards were found
+	 */
+	private long findFingerprint(){
+		int[] boards = playAsX ? X_BOARDS : O_BOARDS;
+		//FNV-1a, with the 9 possible moves as the bytes
+		long h = 0xCBF29CE484222325L;
+		for(int b = 0; b < boards.length; b++) h = (h ^ moves[boards[b]]) * 0x100000001B3L;
+		return h;
+	}
+	
+	/**
+	 * Get a hash of every move in this table. If two tables have different fingerprints, their brains play differently on at least one board, 
+	 * if they have the same fingerprint, they almost certainly play the same, use playsSameAs to be sure
+	 * @return
+	 */
+	public long getFingerprint(){
+		return fingerprint;
+	}
+	
+	/**
+	 * Determine if this table makes the same move as the given table on every board, meaning both brains play every game the same way
+	 * @param table
+	 * @return true if the moves are the same
+	 */
+	public boolean playsSameAs(PolicyTable table){
+		if(fingerprint != table.fingerprint || playAsX != table.playAsX) return false;
+		int[] boards = playAsX ? X_BOARDS : O_BOARDS;
+		for(int b = 0; b < boards.length; b++){
+			if(moves[boards[b]] != table.moves[boards[b]]) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Get the move the brain makes on the given game
+	 * @param game
+	 * @return the index of the brain output for the move, the space at (k % 3, k / 3) for an index k, or -1 if the brain has no move for the board
+	 */
+	public int getMove(TicTacToe game){
+		return moves[game.getRank()];
+	}
+	
+	/**
+	 * Get the move the brain makes on the board with the given rank
+	 * @param rank
+	 * @return the index of the brain output for the move, or -1 if the brain has no move for the board
+	 */
+	public int getMove(int rank){
+		return moves[rank];
+	}
+	
+	/**
+	 * Make the move the brain makes on the given game. Nothing happens if the brain has no move for the board
+	 * @param game
+	 */
+	public void makeMove(TicTacToe game){
+		int k = getMove(game);
+		if(k != -1) game.makeMove(NetPlayer.getCell(k));
+	}
+	
+	/**
+	 * @param playAsX true for the boards where it is X's turn, false for the boards where it is O's turn
+	 * @return the ranks of every board that can happen in a game that is still being played, where it is the given player's turn. 
+	 * 	This is the array used by every table, so it must not be changed
+	 */
+	static int[] getBoards(boolean playAsX){
+		return playAsX ? X_BOARDS : O_BOARDS;
+	}
+	
+	/**
+	 * @param playAsX
+	 * @return the brain inputs for each board of getBoards, one row of 9 after another. This is the array used by every table, so it must not be changed
+	 */
+	static double[] getInputs(boolean playAsX){
+		return playAsX ? X_INPUTS : O_INPUTS;
+	}
+	
+	/**
+	 * @param boards
+	 * @return the brain inputs for each of the given board ranks, one row of 9 after another, in the same form as NetPlayer.writeInputs
+	 */
+	private static double[] getInputs(int[] boards){
+		double[] inputs = new double[boards.length * 9];
+		for(int b = 0; b < boards.length; b++){
+			for(int k = 0; k < 9; k++){
+				//input k is for the space (k % 3, k / 3), which is rank digit (k % 3) * 3 + k / 3
+				int digit = boards[b];
+				for(int d = (k % 3) * 3 + k / 3; d > 0; d--) digit /= 3;
+				digit %= 3;
+				if(digit == 1) inputs[b * 9 + k] = 1;
+				else if(digit == 2) inputs[b * 9 + k] = -1;
+				else inputs[b * 9 + k] = 0;
+			}
+		}
+		return inputs;
+	}
+	
+}
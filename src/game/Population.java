@@ -0,0 +1,280 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import neuralNet.Activation;
+import neuralNet.Crossover;
+import neuralNet.Net;
+
+/**
+ * A group of brains that evolve together. Each generation, every brain is tested, the best few are kept as they are,
+ * and the rest of the next generation are made by picking two parents with tournaments, mixing their weights, and mutating the child.
+ * The nets of each generation are reused, so evolving does not create any new nets.
+ * A population is not thread safe, but different populations can evolve on different threads at the same time, see IslandModel
+ */
+public class Population{
+	
+	/**
+	 * The brains of the current generation
+	 */
+	private Net[] members;
+	
+	/**
+	 * The nets that the next generation is made in, swapped with members after each generation
+	 */
+	private Net[] next;
+	
+	/**
+	 * The table of moves for each member
+	 */
+	private PolicyTable[] tables;
+	
+	/**
+	 * The score of each member from the last time the population was tested
+	 */
+	private double[] fitness;
+	
+	/**
+	 * The index of each member, from the highest fitness to the lowest
+	 */
+	private int[] order;
+	
+	/**
+	 * The seeds of the games of each generation
+	 */
+	private int[] seeds;
+	
+	/**
+	 * The random numbers used for everything in this population
+	 */
+	private SplittableRandom random;
+	
+	/**
+	 * The number of the best brains that are put into the next generation without changing
+	 */
+	private int elites;
+	
+	/**
+	 * The number of brains picked at random for each tournament, the best of them becomes a parent
+	 */
+	private int tournamentSize;
+	
+	/**
+	 * The way the weights of two parents are mixed
+	 */
+	private Crossover crossover;
+	
+	/**
+	 * The way brains are tested
+	 */
+	private FitnessMode fitnessMode;
+	
+	/**
+	 * True if the brains learn to play as X, false if they learn to play as O
+	 */
+	private boolean playAsX;
+	
+	/**
+	 * A copy of the best brain of the last generation that was tested
+	 */
+	private Net champion;
+	
+	/**
+	 * The fitness of champion
+	 */
+	private double championFitness;
+	
+	/**
+	 * The best fitness, the mutability of the best brain, and the average fitness of each generation
+	 */
+	private ArrayList<double[]> data;
+	
+	/**
+	 * @param size the number of brains in each generation
+	 * @param elites the number of the best brains that are put into the next generation without changing, must be less than size
+	 * @param tournamentSize the number of brains picked at random for each tournament, at least 1
+	 * @param crossover the way the weights of two parents are mixed
+	 * @param rand the random numbers used for everything in this population, the population makes the same brains every time it is given the same random numbers
+	 * @param layers the number of nodes in each layer of the brains
+	 */
+	public Population(int size, int elites, int tournamentSize, Crossover crossover, SplittableRandom rand, int... layers){
+		this.elites = elites;
+		this.tournamentSize = tournamentSize;
+		this.crossover = crossover;
+		random = rand;
+		
+		members = new Net[size];
+		next = new Net[size];
+		tables = new PolicyTable[size];
+		for(int i = 0; i < size; i++){
+			members[i] = new Net(random, layers);
+			next[i] = new Net(random, layers);
+			tables[i] = new PolicyTable();
+		}
+		fitness = new double[size];
+		order = new int[size];
+		seeds = new int[0];
+		
+		fitnessMode = FitnessMode.SAMPLED;
+		playAsX = true;
+		champion = members[0].copy();
+		championFitness = Double.NEGATIVE_INFINITY;
+		data = new ArrayList<double[]>();
+	}
+	
+	/**
+	 * Test every brain of the current generation, and then replace it with the next generation
+	 * @param games the number of seeds to test each brain with, one game against each AI is played for each seed. Not used with FitnessMode.EXACT
+	 */
+	public void evolve(int games){
+		test(games);
+		
+		//sort the members from best to worst
+		for(int i = 0; i < order.length; i++){
+			int j = i;
+			while(j > 0 && fitness[order[j - 1]] < fitness[i]){
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = i;
+		}
+		
+		Net best = members[order[0]];
+		best.copyInto(champion);
+		championFitness = fitness[order[0]];
+		//brains dropped by FitnessMode.RACING have no score, so they are not part of the average
+		double total = 0;
+		int scored = 0;
+		for(int i = 0; i < fitness.length; i++){
+			if(fitness[i] == Double.NEGATIVE_INFINITY) continue;
+			total += fitness[i];
+			scored++;
+		}
+		data.add(new double[]{championFitness, best.getMutability(), total / scored});
+		
+		//the elites stay the same, the rest are children of two parents, mutated
+		for(int i = 0; i < elites; i++) members[order[i]].copyInto(next[i]);
+		for(int i = elites; i < next.length; i++){
+			Net a = members[pickParent()];
+			Net b = members[pickParent()];
+			a.crossoverInto(b, next[i], crossover, random);
+			next[i].mutateInto(next[i], random);
+		}
+		
+		Net[] n = members;
+		members = next;
+		next = n;
+	}
+	
+	/**
+	 * Find the fitness of every brain of the current generation
+	 * @param games
+	 */
+	private void test(int games){
+		for(int i = 0; i < members.length; i++) tables[i].load(members[i], playAsX);
+		
+		if(fitnessMode == FitnessMode.EXACT){
+			ExactEvaluator e = ExactEvaluator.forThread();
+			for(int i = 0; i < tables.length; i++){
+				fitness[i] = (e.getExpectedScore(tables[i], playAsX, Opponent.RANDOM) + e.getExpectedScore(tables[i], playAsX, Opponent.SMART)) * .5;
+			}
+			return;
+		}
+		
+		if(seeds.length != games) seeds = new int[games];
+		for(int i = 0; i < seeds.length; i++) seeds[i] = random.nextInt(Integer.MAX_VALUE);
+		
+		if(fitnessMode == FitnessMode.RACING){
+			double[] values = new RacingEvaluator(null).evaluate(tables, playAsX, seeds);
+			System.arraycopy(values, 0, fitness, 0, fitness.length);
+		}
+		else if(fitnessMode == FitnessMode.LOCKSTEP){
+			int[] scores = new int[tables.length];
+			LockstepEvaluator lockstep = new LockstepEvaluator(tables, playAsX);
+			lockstep.playGames(seeds, 0, seeds.length, Opponent.RANDOM, scores);
+			lockstep.playGames(seeds, 0, seeds.length, Opponent.SMART, scores);
+			for(int i = 0; i < fitness.length; i++) fitness[i] = scores[i] / (seeds.length * 2.0);
+		}
+		else{
+			for(int i = 0; i < tables.length; i++){
+				int score = NetPlayer.playGames(tables[i], seeds, 0, seeds.length, Opponent.RANDOM, playAsX) + NetPlayer.playGames(tables[i], seeds, 0, seeds.length, Opponent.SMART, playAsX);
+				fitness[i] = score / (seeds.length * 2.0);
+			}
+		}
+	}
+	
+	/**
+	 * Pick a parent with a tournament, the best of tournamentSize members picked at random
+	 * @return the index of the parent in members
+	 */
+	private int pickParent(){
+		int best = random.nextInt(members.length);
+		for(int i = 1; i < tournamentSize; i++){
+			int r = random.nextInt(members.length);
+			if(fitness[r] > fitness[best]) best = r;
+		}
+		return best;
+	}
+	
+	/**
+	 * Put a brain from somewhere else into the current generation, in place of the last member, which is never an elite after the first generation.
+	 * The brain is copied, so it can keep changing after this
+	 * @param migrant a brain with the same layers as the brains of this population
+	 */
+	public void accept(Net migrant){
+		migrant.copyInto(members[members.length - 1]);
+	}
+	
+	/**
+	 * @return a copy of the best brain of the last generation that was tested, which does not change as this population evolves
+	 */
+	public Net getChampion(){
+		return champion.copy();
+	}
+	
+	/**
+	 * @return the fitness of the best brain of the last generation that was tested, or negative infinity if no generation has been tested
+	 */
+	public double getChampionFitness(){
+		return championFitness;
+	}
+	
+	/**
+	 * @return the best fitness, the mutability of the best brain, and the average fitness of each generation
+	 */
+	public ArrayList<double[]> getData(){
+		return data;
+	}
+	
+	/**
+	 * @return the number of brains in each generation
+	 */
+	public int getSize(){
+		return members.length;
+	}
+	
+	/**
+	 * Set the way brains are tested
+	 * @param fitnessMode
+	 */
+	public void setFitnessMode(FitnessMode fitnessMode){
+		this.fitnessMode = fitnessMode;
+	}
+	
+	/**
+	 * @param playAsX true if the brains should learn to play as X, false if they should learn to play as O
+	 */
+	public void setPlayAsX(boolean playAsX){
+		this.playAsX = playAsX;
+	}
+	
+	/**
+	 * Set the way every brain of this population calculates the sigmoid of each node, every brain made from them will use the same activation
+	 * @param activation
+	 */
+	public void setActivation(Activation activation){
+		for(Net n : members) n.setActivation(activation);
+	}
+	
+}
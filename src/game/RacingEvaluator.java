@@ -0,0 +1,172 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Tests brains by playing their games in rounds, and stops testing a brain once it is clearly worse than the best brain so far.
+ * After each round, every brain still being tested has played the same games, and a brain is dropped when the highest its average score per seed
+ * could likely be is below the lowest the best brain's average score per seed could likely be. The brains that are left play every seed,
+ * so the brain picked is the same as testing every brain with every seed, unless a brain was dropped by bad luck, which happens with a chance of at most CONFIDENCE
+ */
+public class RacingEvaluator{
+	
+	/**
+	 * The number of seeds played in each round, each seed is one game against each opponent
+	 */
+	public static final int ROUND_SEEDS = 50;
+	
+	/**
+	 * The chance that any brain's average score is outside of the range used to decide if it should be dropped, over all the checks in one call to evaluate
+	 */
+	public static final double CONFIDENCE = .05;
+	
+	/**
+	 * The pool to play the games of a round in parallel on, or null to play them on the calling thread
+	 */
+	private ForkJoinPool pool;
+	
+	/**
+	 * The AIs each brain plays against
+	 */
+	private Opponent[] opponents;
+	
+	/**
+	 * The number of games played in the last call to evaluate
+	 */
+	private int gamesPlayed;
+	
+	/**
+	 * The number of games that did not need to be played in the last call to evaluate, because the brain playing them was dropped
+	 */
+	private int gamesSaved;
+	
+	/**
+	 * @param pool the pool to play the games of each round in parallel on, or null to play them on the calling thread
+	 */
+	public RacingEvaluator(ForkJoinPool pool){
+		this(pool, new Opponent[]{Opponent.RANDOM, Opponent.SMART});
+	}
+	
+	/**
+	 * @param pool the pool to play the games of each round in parallel on, or null to play them on the calling thread
+	 * @param opponents the AIs each brain plays one game against for each seed
+	 */
+	public RacingEvaluator(ForkJoinPool pool, Opponent[] opponents){
+		this.pool = pool;
+		this.opponents = opponents;
+	}
+	
+	/**
+	 * Test each of the brains with the given tables, against each opponent
+	 * @param tables the moves of each brain
+	 * @param playAsX true if the brains play as X, false if they play as O
+	 * @param seeds the seeds for the games, each brain that is not dropped plays one game against each opponent for each seed
+	 * @return the average score of each brain that was not dropped, and negative infinity for each brain that was dropped, in the same order as tables
+	 */
+	public double[] evaluate(PolicyTable[] tables, boolean playAsX, int[] seeds){
+		int[] scores = new int[tables.length];
+		boolean[] dropped = new boolean[tables.length];
+		int left = tables.length;
+		int played = 0;
+		gamesPlayed = 0;
+		
+		//the chance for each check, so that the chance for all the checks of all the brains together is at most CONFIDENCE.
+		//each brain is checked once a round for a score that is too high, and once for a score that is too low in case it is the best
+		int rounds = (seeds.length + ROUND_SEEDS - 1) / ROUND_SEEDS;
+		double checkConfidence = CONFIDENCE / (2.0 * tables.length * rounds);
+		
+		while(played < seeds.length){
+			int start = played;
+			int end = Math.min(seeds.length, start + ROUND_SEEDS);
+			playRound(tables, playAsX, seeds, start, end, scores, dropped);
+			gamesPlayed += left * (end - start) * opponents.length;
+			played = end;
+			
+			//the games of a seed use the same random numbers, so the seeds are the independent samples, not the games.
+			//the score of a seed is one game against each opponent, so it is between -opponents.length and opponents.length.
+			//every brain left has played the same seeds, so they all have the same range
+			double range = 2 * opponents.length * Math.sqrt(Math.log(1 / checkConfidence) / (2 * played));
+			int best = -1;
+			for(int i = 0; i < tables.length; i++){
+				if(!dropped[i] && (best == -1 || scores[i] > scores[best])) best = i;
+			}
+			double bestLow = (double)scores[best] / played - range;
+			for(int i = 0; i < tables.length; i++){
+				if(!dropped[i] && (double)scores[i] / played + range < bestLow){
+					dropped[i] = true;
+					left--;
+				}
+			}
+			if(left == 1) break;
+		}
+		gamesSaved = tables.length * seeds.length * opponents.length - gamesPlayed;
+		
+		double[] values = new double[tables.length];
+		for(int i = 0; i < values.length; i++){
+			if(dropped[i]) values[i] = Double.NEGATIVE_INFINITY;
+			else values[i] = scores[i] / ((double)played * opponents.length);
+		}
+		return values;
+	}
+	
+	/**
+	 * Play one round of games for every brain that has not been dropped, adding the scores of the games to the brain's score
+	 * @param tables
+	 * @param playAsX
+	 * @param seeds
+	 * @param start the index of the first seed of the round
+	 * @param end the index after the last seed of the round
+	 * @param scores the total score of each brain
+	 * @param dropped true for each brain that has been dropped
+	 */
+	private void playRound(PolicyTable[] tables, boolean playAsX, int[] seeds, int start, int end, int[] scores, boolean[] dropped){
+		if(pool == null){
+			for(int i = 0; i < tables.length; i++){
+				if(!dropped[i]) scores[i] += playRound(tables[i], playAsX, seeds, start, end);
+			}
+			return;
+		}
+		
+		//null for the brains that were dropped
+		ArrayList<ForkJoinTask<Integer>> tasks = new ArrayList<ForkJoinTask<Integer>>(tables.length);
+		for(int i = 0; i < tables.length; i++){
+			PolicyTable table = tables[i];
+			tasks.add(dropped[i] ? null : pool.submit(() -> playRound(table, playAsX, seeds, start, end)));
+		}
+		for(int i = 0; i < tables.length; i++){
+			if(tasks.get(i) != null) scores[i] += tasks.get(i).join();
+		}
+	}
+	
+	/**
+	 * Play one round of games for one brain
+	 * @param table
+	 * @param playAsX
+	 * @param seeds
+	 * @param start
+	 * @param end
+	 * @return the total score of the games against every opponent
+	 */
+	private int playRound(PolicyTable table, boolean playAsX, int[] seeds, int start, int end){
+		int score = 0;
+		for(Opponent o : opponents) score += NetPlayer.playGames(table, seeds, start, end, o, playAsX);
+		return score;
+	}
+	
+	/**
+	 * @return the number of games played in the last call to evaluate
+	 */
+	public int getGamesPlayed(){
+		return gamesPlayed;
+	}
+	
+	/**
+	 * @return the number of games that did not need to be played in the last call to evaluate, because the brain playing them was dropped
+	 */
+	public int getGamesSaved(){
+		return gamesSaved;
+	}
+	
+}
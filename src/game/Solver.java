@@ -0,0 +1,126 @@
+package game;
+
+import java.util.Random;
+
+import game.TicTacToe.State;
+
+/**
+ * The result of perfect play from every board, found once by going through every game that can be played.
+ * A board's value is what the player whose turn it is gets if both players play perfectly from then on, 1 for a win, 0 for a tie, and -1 for a loss.
+ * Values and best moves are stored in arrays indexed by board rank, so finding them only takes one array lookup
+ */
+public class Solver{
+	
+	/**
+	 * The value of each board rank, for the player whose turn it is
+	 */
+	private static final byte[] VALUES = new byte[BoardIndex.NUM_RANKS];
+	
+	/**
+	 * The spaces of each board rank that give the player whose turn it is the value of the board, space (i, j) is bit i * 3 + j, 0 if the game is over
+	 */
+	private static final short[] BEST_MOVES = new short[BoardIndex.NUM_RANKS];
+	
+	static{
+		solve(new TicTacToe(), new boolean[BoardIndex.NUM_RANKS]);
+	}
+	
+	/**
+	 * Find the value and best moves of the board of the given game, and every board that can be reached from it
+	 * @param game
+	 * @param solved true for each rank that has already been found
+	 * @return the value of the board
+	 */
+	private static int solve(TicTacToe game, boolean[] solved){
+		int rank = game.getRank();
+		if(solved[rank]) return VALUES[rank];
+		
+		int value;
+		int best = 0;
+		if(game.getState() == State.DRAW) value = 0;
+		//the last player to move won, and it is the other player's turn
+		else if(game.getState() != State.PLAY) value = -1;
+		else{
+			value = -2;
+			for(int c = game.getEmptyMask(); c != 0; c &= c - 1){
+				int cell = Integer.numberOfTrailingZeros(c);
+				game.makeMove(cell);
+				int v = -solve(game, solved);
+				game.undoMove(cell);
+				if(v > value){
+					value = v;
+					best = 0;
+				}
+				if(v == value) best |= 1 << cell;
+			}
+		}
+		
+		VALUES[rank] = (byte)value;
+		BEST_MOVES[rank] = (short)best;
+		solved[rank] = true;
+		return value;
+	}
+	
+	/**
+	 * @param game
+	 * @return the value of the board of the given game for the player whose turn it is
+	 */
+	public static int getValue(TicTacToe game){
+		return VALUES[game.getRank()];
+	}
+	
+	/**
+	 * @param rank the rank of a board that can happen in a game
+	 * @return the value of the board for the player whose turn it is
+	 */
+	public static int getValue(int rank){
+		return VALUES[rank];
+	}
+	
+	/**
+	 * @param game
+	 * @return every space that gives the player whose turn it is the value of the board, space (i, j) is bit i * 3 + j, 0 if the game is over
+	 */
+	public static int getBestMoves(TicTacToe game){
+		return BEST_MOVES[game.getRank()];
+	}
+	
+	/**
+	 * @param rank the rank of a board that can happen in a game
+	 * @return every space that gives the player whose turn it is the value of the board
+	 */
+	public static int getBestMoves(int rank){
+		return BEST_MOVES[rank];
+	}
+	
+	/**
+	 * Pick one of the best moves of the given game. Each best move is equally likely, and one number is taken from the given Random object only if there is more than one
+	 * @param game
+	 * @param rand
+	 * @return the bit of the space, or -1 if the game is over
+	 */
+	public static int getBestMove(TicTacToe game, Random rand){
+		int best = BEST_MOVES[game.getRank()];
+		if(best == 0) return -1;
+		if((best & (best - 1)) == 0) return Integer.numberOfTrailingZeros(best);
+		return TicTacToe.nthSpace(best, (int)(rand.nextDouble() * Integer.bitCount(best)));
+	}
+	
+	/**
+	 * Find how often the brain with the given table makes a perfect move, without playing any games. 
+	 * Every board where the game is still being played and it is the brain's turn is checked once
+	 * @param table the moves of the brain
+	 * @param playAsX true if the brain plays as X, false if it plays as O
+	 * @return the fraction of the boards where the brain makes one of the best moves, in the range [0, 1]
+	 */
+	public static double getAgreement(PolicyTable table, boolean playAsX){
+		int[] boards = PolicyTable.getBoards(playAsX);
+		int perfect = 0;
+		for(int b = 0; b < boards.length; b++){
+			int k = table.getMove(boards[b]);
+			if(k != -1 && (BEST_MOVES[boards[b]] & (1 << NetPlayer.getCell(k))) != 0) perfect++;
+		}
+		return (double)perfect / boards.length;
+	}
+	
+}
@@ -0,0 +1,130 @@
+package game;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+import neuralNet.GradientTrainer;
+import neuralNet.Net;
+
+/**
+ * Trains a brain to play perfectly, by teaching it the moves the Solver makes on every board it can be given, instead of evolving it.
+ * For each board, the brain should output 1 for each space where the Solver would move, and -1 for every other empty space.
+ * Outputs for spaces that are already taken are never played, so they can be anything
+ */
+public class SupervisedTrainer{
+	
+	/**
+	 * The brain being trained
+	 */
+	private Net brain;
+	
+	/**
+	 * True if the brain learns to play as X, false if it learns to play as O
+	 */
+	private boolean playAsX;
+	
+	/**
+	 * The object that finds the gradient and moves the weights of the brain
+	 */
+	private GradientTrainer trainer;
+	
+	/**
+	 * The number of boards the brain can be given
+	 */
+	private int count;
+	
+	/**
+	 * The output the brain should give for each board
+	 */
+	private double[] targets;
+	
+	/**
+	 * 1 for each output of each board for an empty space, 0 for spaces that are taken
+	 */
+	private double[] mask;
+	
+	/**
+	 * The number of boards used for each step
+	 */
+	private int batchSize;
+	
+	/**
+	 * The random numbers used to shuffle the boards
+	 */
+	private SplittableRandom random;
+	
+	/**
+	 * The table used to check the moves of the brain after each epoch
+	 */
+	private PolicyTable table;
+	
+	/**
+	 * The average squared error, and the fraction of boards where the brain makes a perfect move, of each epoch
+	 */
+	private ArrayList<double[]> data;
+	
+	/**
+	 * @param brain the brain to train, its weights are changed by training
+	 * @param playAsX true if the brain learns to play as X, false if it learns to play as O
+	 * @param learningRate the size of each step
+	 * @param batchSize the number of boards used for each step
+	 * @param rand the random numbers used to shuffle the boards
+	 */
+	public SupervisedTrainer(Net brain, boolean playAsX, double learningRate, int batchSize, SplittableRandom rand){
+		this.brain = brain;
+		this.playAsX = playAsX;
+		this.batchSize = batchSize;
+		random = rand;
+		trainer = new GradientTrainer(brain, learningRate);
+		
+		int[] boards = PolicyTable.getBoards(playAsX);
+		double[] inputs = PolicyTable.getInputs(playAsX);
+		count = boards.length;
+		targets = new double[inputs.length];
+		mask = new double[inputs.length];
+		for(int b = 0; b < count; b++){
+			int best = Solver.getBestMoves(boards[b]);
+			for(int k = 0; k < 9; k++){
+				if(inputs[b * 9 + k] != 0) continue;
+				mask[b * 9 + k] = 1;
+				targets[b * 9 + k] = (best & (1 << NetPlayer.getCell(k))) != 0 ? 1 : -1;
+			}
+		}
+		
+		table = new PolicyTable();
+		data = new ArrayList<double[]>();
+	}
+	
+	/**
+	 * Train the brain with every board once
+	 * @return the average squared error of the outputs for empty spaces
+	 */
+	public double train(){
+		double error = trainer.trainEpoch(PolicyTable.getInputs(playAsX), targets, mask, count, batchSize, random);
+		data.add(new double[]{error, getPerfectRate()});
+		return error;
+	}
+	
+	/**
+	 * @return the fraction of the boards the brain can be given where it makes a move the Solver would make
+	 */
+	public double getPerfectRate(){
+		table.load(brain, playAsX);
+		return Solver.getAgreement(table, playAsX);
+	}
+	
+	/**
+	 * @return the brain being trained
+	 */
+	public Net getBrain(){
+		return brain;
+	}
+	
+	/**
+	 * @return the average squared error, and the fraction of boards where the brain makes a perfect move, of each epoch
+	 */
+	public ArrayList<double[]> getData(){
+		return data;
+	}
+	
+}
@@ -3,9 +3,8 @@ package game;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics2D;
-import java.awt.Point;
-import java.util.ArrayList;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import menu.Main;
 
@@ -24,7 +23,62 @@ public class TicTacToe{
 		PLAY, X_WIN, O_WIN, DRAW;
 	}
 	
-	private Type[][] board;
+	/**
+	 * The mask of every space of the board, space (i, j) is bit i * 3 + j
+	 */
+	public static final int FULL = 0x1FF;
+	
+	/**
+	 * The spaces of each 3 in a row/column/diag, in the order row 0, column 0, row 1, column 1, row 2, column 2, 
+	 * the upper left to lower right diagonal, and the lower left to upper right diagonal
+	 */
+	public static final int[] LINES = new int[]{
+		0x007, 0x049, 0x038, 0x092, 0x1C0, 0x124, 0x111, 0x054
+	};
+	
+	/**
+	 * For every set of spaces, true if that set contains one of the LINES
+	 */
+	private static final boolean[] HAS_LINE = new boolean[FULL + 1];
+	static{
+		for(int m = 0; m < HAS_LINE.length; m++){
+			for(int line : LINES){
+				if((m & line) == line) HAS_LINE[m] = true;
+			}
+		}
+	}
+	
+	/**
+	 * For every set of spaces one player has played on, the spaces that would give that player a 3 in a row/column/diag, 
+	 * one for each of the LINES that has 2 of its spaces in the set, in the same order as LINES
+	 */
+	private static final int[][] COMPLETING = new int[FULL + 1][];
+	static{
+		int[] cells = new int[LINES.length];
+		for(int m = 0; m < COMPLETING.length; m++){
+			int count = 0;
+			for(int line : LINES){
+				int missing = line & ~m;
+				if(Integer.bitCount(missing) == 1) cells[count++] = Integer.numberOfTrailingZeros(missing);
+			}
+			COMPLETING[m] = new int[count];
+			System.arraycopy(cells, 0, COMPLETING[m], 0, count);
+		}
+	}
+	
+	/**
+	 * The spaces where X has played
+	 */
+	private int xMask;
+	/**
+	 * The spaces where O has played
+	 */
+	private int oMask;
+	
+	/**
+	 * The rank of the board, see BoardIndex, kept up to date with each move so it never has to be found from the board
+	 */
+	private int rank;
 	
 	private boolean xTurn;
 	
@@ -40,12 +94,9 @@ public class TicTacToe{
 	public void reset(){
 		xTurn = true;
 		state = State.PLAY;
-		board = new Type[3][3];
-		for(int i = 0; i < board.length; i++){
-			for(int j = 0; j < board[i].length; j++){
-				board[i][j] = Type.EMPTY;
-			}
-		}
+		xMask = 0;
+		oMask = 0;
+		rank = 0;
 	}
 	
 	/**
@@ -56,14 +107,14 @@ public class TicTacToe{
 	 */
 	public void render(Graphics2D g, int x, int y){
 		g.setColor(Color.BLACK);
-		int w = SIZE * board.length + 1;
+		int w = SIZE * 3 + 1;
 		g.fillRect(x - 1 , y - 1, w, w);
-		for(int j = 0; j < board.length; j++){
-			for(int i = 0; i < board[j].length; i++){
+		for(int j = 0; j < 3; j++){
+			for(int i = 0; i < 3; i++){
 				g.setColor(Color.WHITE);
 				int xx = x + j * SIZE;
 				int yy = y + i * SIZE;
-				Type t = board[i][j];
+				Type t = getType(i, j);
 				g.fillRect(xx, yy, SIZE - 1, SIZE - 1);
 				if(t != Type.EMPTY){
 					g.setColor(Color.BLACK);
@@ -99,31 +150,54 @@ public class TicTacToe{
 	 * @param j the column
 	 */
 	public void makeMove(int i, int j){
+		makeMove(i * 3 + j);
+	}
+	
+	/**
+	 * Attempt to make a move at the specified space. If the move succeeds, the state of the game is reevaluated, and someone may win or the turn may change
+	 * @param cell the bit of the space, i * 3 + j for row i and column j
+	 */
+	public void makeMove(int cell){
 		if(state != State.PLAY) return;
-		if(board[i][j] == Type.EMPTY){
-			if(xTurn) board[i][j] = Type.X;
-			else board[i][j] = Type.O;
+		int bit = 1 << cell;
+		if(((xMask | oMask) & bit) == 0){
+			rank += BoardIndex.getRankChange(cell, xTurn);
+			if(xTurn) xMask |= bit;
+			else oMask |= bit;
 			xTurn = !xTurn;
 			calculateState();
 		}
 	}
 	
+	/**
+	 * Take back the last move made in this game, which must have been made at the given space. The game goes back to being played
+	 * @param cell the bit of the space of the last move, i * 3 + j for row i and column j
+	 */
+	public void undoMove(int cell){
+		int bit = 1 << cell;
+		rank -= BoardIndex.getRankChange(cell, (xMask & bit) != 0);
+		xMask &= ~bit;
+		oMask &= ~bit;
+		xTurn = !xTurn;
+		state = State.PLAY;
+	}
+	
 	/**
 	 * Determines if the game is over or if the game should continue playing
 	 */
 	public void calculateState(){
-		if(winner(Type.X)) state = State.X_WIN;
-		else if(winner(Type.O)) state = State.O_WIN;
-		else{
-			boolean full = true;
-			for(int i = 0; i < board.length && full; i++){
-				for(int j = 0; j < board[i].length && full; j++){
-					full = board[i][j] != Type.EMPTY;
-				}
-			}
-			if(full) state = State.DRAW;
-			else state = State.PLAY;
-		}
+		if(HAS_LINE[xMask]) state = State.X_WIN;
+		else if(HAS_LINE[oMask]) state = State.O_WIN;
+		else if(Integer.bitCount(xMask | oMask) == 9) state = State.DRAW;
+		else state = State.PLAY;
+	}
+	
+	/**
+	 * @param mask a set of spaces, space (i, j) is bit i * 3 + j
+	 * @return true if the given spaces contain one of the LINES
+	 */
+	public static boolean hasLine(int mask){
+		return HAS_LINE[mask];
 	}
 	
 	/**
@@ -131,23 +205,8 @@ public class TicTacToe{
 	 * @return true if the given type has a winning 3 in a row/column/diag
 	 */
 	public boolean winner(Type t){
-		boolean found;
-		for(int i = 0; i < board.length; i++){
-			found = true;
-			for(int j = 0; j < board[i].length && found; j++) found = board[i][j] == t;
-			if(found) return true;
-			found = true;
-			for(int j = 0; j < board[i].length && found; j++) found = board[j][i] == t;
-			if(found) return true;
-		}
-
-		found = true;
-		for(int i = 0; i < board.length && found; i++) found = board[i][i] == t;
-		if(found) return true;
-		found = true;
-		for(int i = 0; i < board.length && found; i++) found = board[i][board.length - 1 - i] == t;
-		if(found) return true;
-		
+		if(t == Type.X) return HAS_LINE[xMask];
+		if(t == Type.O) return HAS_LINE[oMask];
 		return false;
 	}
 	
@@ -158,26 +217,28 @@ public class TicTacToe{
 	 * @param rand the seed for the move
 	 */
 	public void makeRandomMove(Random rand){
-		Type[][] b = getBoard();
-		ArrayList<Point> valid = new ArrayList<Point>();
-		for(int i = 0; i < b.length; i++){
-			for(int j = 0; j < b[i].length; j++){
-				if(b[i][j] == Type.EMPTY) valid.add(new Point(i, j));
-			}
-		}
-		if(valid.size() == 0) return;
-		
-		Point randIndex = valid.get((int)(rand.nextDouble() * valid.size()));
-		makeMove(randIndex.x, randIndex.y);
+		int move = getRandomMove(rand);
+		if(move != -1) makeMove(move);
 	}
-
+	
+	/**
+	 * Randomly picks a valid space to play at using one number from the given Random object. Each empty space is equally likely
+	 * @param rand
+	 * @return the bit of the space, or -1 if there are no empty spaces, in which case no number is taken from rand
+	 */
+	public int getRandomMove(Random rand){
+		int empty = getEmptyMask();
+		if(empty == 0) return -1;
+		return nthSpace(empty, (int)(rand.nextDouble() * Integer.bitCount(empty)));
+	}
+	
 	/**
 	 * Makes a move for the current player. If there is a way for them to win in this move, then that move is made, 
 	 * if there is not a way for the player to win, then it tries to find a move to block the opponent, 
 	 * if there is no blocking move a random move is played
 	 */
 	public void makeSmartMove(){
-		makeSmartMove(new Random());
+		makeSmartMove(ThreadLocalRandom.current());
 	}
 	
 	/**
@@ -188,103 +249,110 @@ public class TicTacToe{
 	 * 
 	 */
 	public void makeSmartMove(Random r){
+		int move = getSmartMove(r);
+		if(move != -1) makeMove(move);
+	}
+	
+	/**
+	 * Pick the space makeSmartMove would play at
+	 * @param r the Random object for picking a random move if applicable
+	 * @return the bit of the space, or -1 if there are no empty spaces
+	 */
+	public int getSmartMove(Random r){
 		//first see if the current player can make a winning move
-		Point move = findWinningMove(xTurn);
-		if(move != null){
-			makeMove(move.x, move.y);
-			return;
-		}
+		int move = getWinningMove(xTurn);
+		if(move != -1) return move;
 		
 		//if the can't make a winning move, see if they can block the opponent
-		move = findWinningMove(!xTurn);
-		if(move != null){
-			makeMove(move.x, move.y);
-			return;
-		}
+		move = getWinningMove(!xTurn);
+		if(move != -1) return move;
 		
 		//otherwise just pick a random move
-		makeRandomMove(r);
+		return getRandomMove(r);
 	}
 	
 	/**
 	 * @param turn
-	 * @return the point on the board where the first winning move can be made for the given turn. Returns null if no valid move is found
+	 * @return the bit of the space on the board where the first winning move can be made for the given turn, checking the LINES in order. 
+	 * Returns -1 if no valid move is found
 	 */
-	public Point findWinningMove(boolean turn){
-		int playI;
-		int empty;
-		for(int i = 0; i < board.length; i++){
-			//check columns for being able to win
-			empty = 0;
-			playI = -1;
-			for(int j = 0; j < board[i].length && empty <= 1; j++){
-				Type b = board[i][j];
-				if(b == Type.EMPTY){
-					empty++;
-					playI = j;
-				}
-				else if(!isThisTurn(b, turn)) empty = 2;
-			}
-			if(playI != -1 && empty == 1){
-				return new Point(i, playI);
-			}
-			
-			//check rows for being able to win
-			empty = 0;
-			playI = -1;
-			for(int j = 0; j < board[i].length && empty <= 1; j++){
-				Type b = board[j][i];
-				if(b == Type.EMPTY){
-					empty++;
-					playI = j;
-				}
-				else if(!isThisTurn(b, turn)) empty = 2;
-			}
-			if(playI != -1 && empty == 1){
-				return new Point(playI, i);
-			}
-		}
-		
-		//check the upper left to lower right diagonal
-		empty = 0;
-		playI = -1;
-		for(int j = 0; j < board[0].length && empty <= 1; j++){
-			Type b = board[j][j];
-			if(b == Type.EMPTY){
-				empty++;
-				playI = j;
-			}
-			else if(!isThisTurn(b, turn)) empty = 2;
-		}
-		if(playI != -1 && empty == 1){
-			return new Point(playI, playI);
-		}
-		
-		//check the lower left to upper right diagonal
-		empty = 0;
-		playI = -1;
-		for(int j = 0; j < board[0].length && empty <= 1; j++){
-			Type b = board[j][board.length - 1 - j];
-			if(b == Type.EMPTY){
-				empty++;
-				playI = j;
-			}
-			else if(!isThisTurn(b, turn)) empty = 2;
-		}
-		if(playI != -1 && empty == 1){
-			return new Point(playI, board.length - 1 - playI);
+	public int getWinningMove(boolean turn){
+		int empty = getEmptyMask();
+		for(int cell : COMPLETING[turn ? xMask : oMask]){
+			if((empty & (1 << cell)) != 0) return cell;
 		}
-		
-		return null;
+		return -1;
+	}
+	
+	/**
+	 * @return the spaces of this game that have not been played on, space (i, j) is bit i * 3 + j
+	 */
+	public int getEmptyMask(){
+		return FULL & ~(xMask | oMask);
 	}
 	
 	/**
-	 * @return the board of this game
+	 * @param spaces
+	 * @param n
+	 * @return the bit of the space that is the nth space in the given spaces, counting from 0 and from the lowest bit
+	 */
+	public static int nthSpace(int spaces, int n){
+		for(int i = 0; i < n; i++) spaces &= spaces - 1;
+		return Integer.numberOfTrailingZeros(spaces);
+	}
+	
+	/**
+	 * @return a new array with the type of each space of the board of this game, indexed by row and then column. 
+	 * Use getType or the masks of this game when the whole board is not needed
 	 */
 	public Type[][] getBoard(){
+		Type[][] board = new Type[3][3];
+		for(int i = 0; i < board.length; i++){
+			for(int j = 0; j < board[i].length; j++) board[i][j] = getType(i, j);
+		}
 		return board;
 	}
 	
+	/**
+	 * @param i the row
+	 * @param j the column
+	 * @return the type of the given space
+	 */
+	public Type getType(int i, int j){
+		int bit = 1 << (i * 3 + j);
+		if((xMask & bit) != 0) return Type.X;
+		if((oMask & bit) != 0) return Type.O;
+		return Type.EMPTY;
+	}
+	
+	/**
+	 * @return the spaces where X has played, space (i, j) is bit i * 3 + j
+	 */
+	public int getXMask(){
+		return xMask;
+	}
+	
+	/**
+	 * @return the spaces where O has played, space (i, j) is bit i * 3 + j
+	 */
+	public int getOMask(){
+		return oMask;
+	}
+	
+	/**
+	 * @return the rank of the board of this game, see BoardIndex
+	 */
+	public int getRank(){
+		return rank;
+	}
+	
+	/**
+	 * @return true if it is X's turn, false if it is O's turn
+	 */
+	public boolean isXTurn(){
+		return xTurn;
+	}
+	
 	public State getState(){
 		return state;
 	}
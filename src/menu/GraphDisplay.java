@@ -4,11 +4,11 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
-import java.util.ArrayList;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 
+import game.History;
 import menu.component.graph.LineGraph;
 import menu.component.graph.LineGraphDetail;
 
@@ -40,7 +40,7 @@ public class GraphDisplay extends JFrame{
 		
 		add(screen);
 		
-		mainGraph = new LineGraph(10, 40, 700, 400, 40, 20, new LineGraphDetail[]{new LineGraphDetail(2f, Color.RED), new LineGraphDetail(2f, Color.BLUE)}){
+		mainGraph = new LineGraph(10, 40, 700, 400, 40, 20, new LineGraphDetail[]{new LineGraphDetail(2f, Color.RED), new LineGraphDetail(2f, Color.BLUE), new LineGraphDetail(2f, Color.GREEN), new LineGraphDetail(2f, Color.MAGENTA)}){
 			@Override
 			public void redrawGraph(){
 				super.redrawGraph();
@@ -56,8 +56,21 @@ public class GraphDisplay extends JFrame{
 		setResizable(false);
 	}
 	
-	public void addGraphData(ArrayList<double[]> data){
+	/**
+	 * Replace the data of the graph, and draw all of it
+	 * @param data the rows of the graph, read each time the graph is drawn, it can be added to on another thread
+	 */
+	public void setGraphData(History.View data){
 		mainGraph.updateGraphImage(data);
+		screen.repaint();
+	}
+	
+	/**
+	 * Draw the rows added to the data of the graph since it was last drawn, only the new part of the graph is drawn
+	 */
+	public void addNewGraphData(){
+		mainGraph.addNewData();
+		screen.repaint();
 	}
 	
 	/**
@@ -69,10 +82,10 @@ public class GraphDisplay extends JFrame{
 	}
 	
 	/**
-	 * Redraw the entire screen based on the current data
+	 * Show the current state of the graph on the screen, the graph itself is only drawn again when its data or view changes
 	 */
 	public void reDraw(){
-		mainGraph.redrawGraph();
+		screen.repaint();
 	}
 	
 	private void render(Graphics g){
@@ -99,6 +112,10 @@ public class GraphDisplay extends JFrame{
 		g.drawString("Fitness", x, y+=40);
 		g.setColor(Color.BLUE);
 		g.drawString("Mutability", x, y+=40);
+		g.setColor(Color.GREEN);
+		g.drawString("Duplicate rate", x, y+=40);
+		g.setColor(Color.MAGENTA);
+		g.drawString("Perfect move rate", x, y+=40);
 	}
 	
 }
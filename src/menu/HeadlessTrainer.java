@@ -0,0 +1,271 @@
+package menu;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ForkJoinPool;
+
+import game.History;
+import game.NetPlayer;
+
+/**
+ * Trains a brain without any windows, so training can be run from a command line on a computer with no display.
+ * The progress of training is printed, one line for each report, with the same values shown by the graph of Main.
+ * Usage: --layers 9,9,9 --offspring 100 --games 1000 --generations 1000 --threads 4 --seed 1 --report 10 --history 0 --csv file
+ */
+public class HeadlessTrainer{
+	
+	/**
+	 * The nodes in each layer of the brain
+	 */
+	private int[] layers;
+	
+	/**
+	 * The number of mutated brains to make each generation
+	 */
+	private int offspring;
+	
+	/**
+	 * The number of games each brain plays against each opponent each generation
+	 */
+	private int games;
+	
+	/**
+	 * The number of generations to train for
+	 */
+	private int generations;
+	
+	/**
+	 * The number of threads used to test brains, 1 to test them on the thread that runs the training
+	 */
+	private int threads;
+	
+	/**
+	 * The seed that every random number used in training comes from
+	 */
+	private long seed;
+	
+	/**
+	 * The number of generations between each line printed
+	 */
+	private int reportInterval;
+	
+	/**
+	 * The number of generations of history to keep, or 0 to keep every generation
+	 */
+	private int historyCapacity;
+	
+	/**
+	 * The file to write the history to when training ends, or null to not write it
+	 */
+	private String csvFile;
+	
+	/**
+	 * Make a trainer with the same settings as Main, a random seed, and a thread for each processor
+	 */
+	public HeadlessTrainer(){
+		layers = Main.LAYERS.clone();
+		offspring = Main.TEST_OFFSPRING;
+		games = Main.TEST_TIMES;
+		generations = 1000;
+		threads = Runtime.getRuntime().availableProcessors();
+		seed = System.nanoTime();
+		reportInterval = 10;
+		historyCapacity = 0;
+		csvFile = null;
+	}
+	
+	/**
+	 * Train a new brain with the settings of this trainer, printing its progress.
+	 * The same settings always train the same brain, no matter the number of threads
+	 * @return the NetPlayer with the trained brain
+	 */
+	public NetPlayer run(){
+		NetPlayer player = new NetPlayer(seed, layers);
+		ForkJoinPool pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+		player.setPool(pool);
+		player.setHistoryCapacity(historyCapacity);
+		
+		System.out.println("seed " + seed + ", layers " + layersString() + ", " + offspring + " offspring, " + games + " games, " +
+				generations + " generations, " + threads + " threads");
+		System.out.println("generation, fitness, mutability, duplicate rate, perfect move rate, ms");
+		long start = System.nanoTime();
+		try{
+			for(int g = 1; g <= generations; g++){
+				player.train(games, offspring);
+				if(g % reportInterval == 0 || g == generations) report(player, g, start);
+			}
+		}finally{
+			if(pool != null) pool.shutdown();
+		}
+		if(csvFile != null) writeCsv(player);
+		return player;
+	}
+	
+	/**
+	 * Print the values of the latest generation of the given player
+	 * @param player
+	 * @param generation
+	 * @param start the time training started, from System.nanoTime
+	 */
+	private void report(NetPlayer player, int generation, long start){
+		History.View data = player.getData();
+		StringBuilder line = new StringBuilder();
+		line.append(generation);
+		for(int i = 0; i < data.getColumns(); i++) line.append(", ").append(String.format("%.4f", data.get(data.size() - 1, i)));
+		line.append(", ").append((System.nanoTime() - start) / 1000000);
+		System.out.println(line);
+	}
+	
+	/**
+	 * Write the history of the given player to the csv file of this trainer
+	 * @param player
+	 */
+	private void writeCsv(NetPlayer player){
+		try(Writer w = new FileWriter(csvFile)){
+			player.getData().writeCsv(w);
+			System.out.println("Wrote history to " + csvFile);
+		}catch(IOException e){
+			System.out.println("Could not write " + csvFile + ": " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * @return the layers of this trainer, separated by commas
+	 */
+	private String layersString(){
+		StringBuilder s = new StringBuilder();
+		for(int i = 0; i < layers.length; i++){
+			if(i > 0) s.append(',');
+			s.append(layers[i]);
+		}
+		return s.toString();
+	}
+	
+	/**
+	 * @param layers the nodes in each layer of the brain, the first and last must both be 9
+	 */
+	public void setLayers(int... layers){
+		this.layers = layers.clone();
+	}
+	
+	/**
+	 * @param offspring the number of mutated brains to make each generation
+	 */
+	public void setOffspring(int offspring){
+		this.offspring = offspring;
+	}
+	
+	/**
+	 * @param games the number of games each brain plays against each opponent each generation
+	 */
+	public void setGames(int games){
+		this.games = games;
+	}
+	
+	/**
+	 * @param generations the number of generations to train for
+	 */
+	public void setGenerations(int generations){
+		this.generations = generations;
+	}
+	
+	/**
+	 * @param threads the number of threads used to test brains, 1 to test them on the thread that runs the training
+	 */
+	public void setThreads(int threads){
+		this.threads = threads;
+	}
+	
+	/**
+	 * @param seed the seed that every random number used in training comes from
+	 */
+	public void setSeed(long seed){
+		this.seed = seed;
+	}
+	
+	/**
+	 * @param reportInterval the number of generations between each line printed
+	 */
+	public void setReportInterval(int reportInterval){
+		this.reportInterval = Math.max(1, reportInterval);
+	}
+	
+	/**
+	 * @param historyCapacity the number of generations of history to keep, or 0 to keep every generation
+	 */
+	public void setHistoryCapacity(int historyCapacity){
+		this.historyCapacity = historyCapacity;
+	}
+	
+	/**
+	 * @param csvFile the file to write the history to when training ends, or null to not write it
+	 */
+	public void setCsvFile(String csvFile){
+		this.csvFile = csvFile;
+	}
+	
+	/**
+	 * Print how to use the command line arguments
+	 */
+	private static void printUsage(){
+		System.out.println("Usage: --layers 9,9,9 --offspring 100 --games 1000 --generations 1000 --threads 4 --seed 1 --report 10 --history 0 --csv file");
+		System.out.println("--history keeps only that many of the most recent generations, 0 keeps every generation");
+		System.out.println("Every argument is optional, the first and last layer must both be 9");
+	}
+	
+	/**
+	 * Train a brain with the settings given in args, each setting is a name followed by its value
+	 * @param args
+	 */
+	public static void main(String[] args){
+		HeadlessTrainer trainer = new HeadlessTrainer();
+		try{
+			for(int i = 0; i < args.length; i++){
+				String name = args[i];
+				if(name.equals("--headless")) continue;
+				if(name.equals("--help")){
+					printUsage();
+					return;
+				}
+				if(i + 1 >= args.length){
+					System.out.println("No value given for " + name);
+					printUsage();
+					return;
+				}
+				String value = args[++i];
+				if(name.equals("--layers")){
+					String[] split = value.split(",");
+					int[] layers = new int[split.length];
+					for(int j = 0; j < split.length; j++) layers[j] = Integer.parseInt(split[j].trim());
+					trainer.setLayers(layers);
+				}
+				else if(name.equals("--offspring")) trainer.setOffspring(Integer.parseInt(value));
+				else if(name.equals("--games")) trainer.setGames(Integer.parseInt(value));
+				else if(name.equals("--generations")) trainer.setGenerations(Integer.parseInt(value));
+				else if(name.equals("--threads")) trainer.setThreads(Integer.parseInt(value));
+				else if(name.equals("--seed")) trainer.setSeed(Long.parseLong(value));
+				else if(name.equals("--report")) trainer.setReportInterval(Integer.parseInt(value));
+				else if(name.equals("--history")) trainer.setHistoryCapacity(Integer.parseInt(value));
+				else if(name.equals("--csv")) trainer.setCsvFile(value);
+				else{
+					System.out.println("Unknown setting " + name);
+					printUsage();
+					return;
+				}
+			}
+		}catch(NumberFormatException e){
+			System.out.println("Not a number: " + e.getMessage());
+			printUsage();
+			return;
+		}
+		
+		int[] layers = trainer.layers;
+		if(layers.length < 2 || layers[0] != 9 || layers[layers.length - 1] != 9){
+			System.out.println("The first and last layer must both be 9");
+			return;
+		}
+		trainer.run();
+	}
+	
+}
@@ -1,19 +1,27 @@
 package menu;
 
+import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
 
 import game.NetPlayer;
 import game.TicTacToe;
+import neuralNet.Net;
 import neuralNet.Node;
 
 public class Main{
@@ -42,15 +50,39 @@ public class Main{
 	public static final int WIDTH = 1200;
 	public static final int HEIGHT = 1000;
 	
+	//objects used to draw the neural net, made once instead of each time something is drawn
+	private static final BasicStroke WEIGHT_STROKE = new BasicStroke(2f);
+	private static final Font VALUE_FONT = new Font(FONT, Font.PLAIN, 20);
+	private static final Font TEXT_FONT = new Font(FONT, Font.PLAIN, 20);
+	/**
+	 * The color of a negative and a positive weight, with the alpha of each index
+	 */
+	private static final Color[] NEGATIVE_WEIGHTS = new Color[256];
+	private static final Color[] POSITIVE_WEIGHTS = new Color[256];
+	/**
+	 * The color of a negative and a positive node value, fading to white as the index goes up
+	 */
+	private static final Color[] NEGATIVE_VALUES = new Color[256];
+	private static final Color[] POSITIVE_VALUES = new Color[256];
+	static{
+		for(int i = 0; i < 256; i++){
+			NEGATIVE_WEIGHTS[i] = new Color(255, 0, 0, i);
+			POSITIVE_WEIGHTS[i] = new Color(0, 0, 255, i);
+			NEGATIVE_VALUES[i] = new Color(255, i, i);
+			POSITIVE_VALUES[i] = new Color(i, i, 255);
+		}
+	}
+	
 	/**
 	 * The main variable keeping track of this simulation
 	 */
 	private static Main instance;
 	
 	/**
-	 * true if looping training
+	 * The job that keeps training until it is cancelled, or null if not looping training, only used on the event thread.
+	 * Each loop is stopped by cancelling its own job, so a loop that is stopped can't be started again by the next loop
 	 */
-	private boolean loopingTrain;
+	private Future<?> loopingTrain;
 	
 	/**
 	 * The main frame to display the simulation
@@ -60,21 +92,47 @@ public class Main{
 	 * The image that keeps track of the graphics that should be drawn to the frame
 	 */
 	private BufferedImage screen;
+	
 	/**
-	 * True if the loop for the simulation is running
+	 * The image with the lines of every weight of the net that was last drawn, only drawn again when the brain shown changes
 	 */
-	private boolean running;
-	
+	private BufferedImage weightImage;
+	/**
+	 * The net that weightImage was drawn for, and the version of that net when it was drawn
+	 */
+	private Net weightNet;
+	private int weightVersion;
 	/**
 	 * The game currently being displayed
 	 */
 	private TicTacToe game;
 	
 	/**
-	 * The brain that is playing the game
+	 * The brain that is trained, only trained on the training thread. The event thread only uses it to give inputs to and make moves with shownBrain,
+	 * which don't use anything that training changes
 	 */
 	private NetPlayer brain;
 	
+	/**
+	 * The thread that trains the brain, every job that uses brain is run here, one after another, so the event thread never waits for training
+	 */
+	private ExecutorService trainer;
+	
+	/**
+	 * A copy of the brain from the last time training finished a generation, only used on the event thread to draw and play the game
+	 */
+	private Net shownBrain;
+	
+	/**
+	 * The number of times the brain had been trained when shownBrain was copied
+	 */
+	private int shownTimesTrained;
+	
+	/**
+	 * true if the brain trains as X, false if it trains as O, only used on the event thread, jobs give it to the brain when they start
+	 */
+	private boolean playAsX;
+	
 	/**
 	 * the object that keeps track of the frame displaying graphs
 	 */
@@ -90,34 +148,59 @@ public class Main{
 			}
 		});
 		
-		running = true;
+		loopingTrain = null;
+		playAsX = true;
 		
-		loopingTrain = false;
+		trainer = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "Training");
+			t.setDaemon(true);
+			return t;
+		});
 		
-		brain = new NetPlayer(){
-			@Override
-			public void train(int times, int copies){
-				super.train(times, copies);
-				graphFrame.addGraphData(getData());
-			}
-		};
+		brain = new NetPlayer();
+		brain.setPool(ForkJoinPool.commonPool());
+		shownBrain = brain.getBrain().copy();
+		shownTimesTrained = 0;
+		graphFrame.setGraphData(brain.getData());
 		
 		game = new TicTacToe(){
 			@Override
 			public void reset(){
 				super.reset();
-				if(brain != null && game != null) brain.sendBrainInputs(game, brain.getBrain());
+				if(brain != null && game != null) brain.sendBrainInputs(game, shownBrain);
 			}
 		};
 		
 		screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_4BYTE_ABGR);
+		weightImage = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_4BYTE_ABGR);
+		weightNet = null;
 		frame = getFrame();
 		
-		brain.sendBrainInputs(game, brain.getBrain());
+		brain.sendBrainInputs(game, shownBrain);
 		
 		render();
 	}
 	
+	/**
+	 * Train the brain for one generation, and show the result on the event thread. Must only be called on the training thread
+	 * @param x true to train as X, false to train as O
+	 */
+	private void trainGeneration(boolean x){
+		brain.setPlayAsX(x);
+		brain.train(TEST_TIMES, TEST_OFFSPRING);
+		
+		//copy everything the event thread needs, so it never reads the brain while it is training, the history can be read on any thread
+		Net b = brain.getBrain().copy();
+		int times = brain.timesTrained();
+		SwingUtilities.invokeLater(() -> {
+			shownBrain = b;
+			shownTimesTrained = times;
+			graphFrame.addNewGraphData();
+			brain.sendBrainInputs(game, shownBrain);
+			render();
+		});
+	}
+	
 	/**
 	 * Called when every a key is pressed down
 	 * @param e
@@ -134,41 +217,60 @@ public class Main{
 		else if(e.getKeyCode() == KeyEvent.VK_C) game.makeMove(2, 2);
 		else if(e.getKeyCode() == KeyEvent.VK_R) game.makeSmartMove();
 		else if(e.getKeyCode() == KeyEvent.VK_G) graphFrame.toggleOn();
-		else if(e.getKeyCode() == KeyEvent.VK_P) brain.setPlayAsX(!brain.isPlayingAsX());
+		else if(e.getKeyCode() == KeyEvent.VK_P){
+			playAsX = !playAsX;
+			//a running loop carries on as the new side
+			if(loopingTrain != null){
+				loopingTrain.cancel(true);
+				loopingTrain = startLoop(playAsX);
+			}
+		}
 		else if(e.getKeyCode() == KeyEvent.VK_SPACE) game.reset();
 		else if(e.getKeyCode() == KeyEvent.VK_1 || e.getKeyCode() == KeyEvent.VK_2 || e.getKeyCode() == KeyEvent.VK_3){
-			System.out.println("Statred Training");
 			int n = 1;
 			if(e.isShiftDown()) n = 10;
 			if(e.isControlDown()) n = 100;
 			if(e.isAltDown()) n = 1000;
-			for(int i = 0; i < n; i++){
-				if(e.getKeyCode() == KeyEvent.VK_1 || e.getKeyCode() == KeyEvent.VK_3) brain.train(TEST_TIMES, TEST_OFFSPRING);
-				if(e.getKeyCode() == KeyEvent.VK_2 || e.getKeyCode() == KeyEvent.VK_3) brain.train(TEST_TIMES, TEST_OFFSPRING);
-			}
-			System.out.println("Ended Training");
+			int sets = n;
+			int key = e.getKeyCode();
+			boolean x = playAsX;
+			trainer.submit(() -> {
+				for(int i = 0; i < sets; i++){
+					if(key == KeyEvent.VK_1 || key == KeyEvent.VK_3) trainGeneration(x);
+					if(key == KeyEvent.VK_2 || key == KeyEvent.VK_3) trainGeneration(x);
+				}
+			});
 		}
-		else if(e.getKeyCode() == KeyEvent.VK_4){
-			if(!loopingTrain){
-				loopingTrain = true;
-				brain.setPlayAsX(true);
+		else if(e.getKeyCode() == KeyEvent.VK_4 || e.getKeyCode() == KeyEvent.VK_5){
+			if(loopingTrain == null){
+				playAsX = e.getKeyCode() == KeyEvent.VK_4;
+				loopingTrain = startLoop(playAsX);
 			}
-			else loopingTrain = false;
-		}
-		else if(e.getKeyCode() == KeyEvent.VK_5){
-			if(!loopingTrain){
-				loopingTrain = true;
-				brain.setPlayAsX(false);
+			else{
+				loopingTrain.cancel(true);
+				loopingTrain = null;
 			}
-			else loopingTrain = false;
 		}
-		else if(e.getKeyCode() == KeyEvent.VK_ENTER) brain.makeMove(game, brain.getBrain());
+		else if(e.getKeyCode() == KeyEvent.VK_ENTER) brain.makeMove(game, shownBrain);
 		else if(e.getKeyCode() == KeyEvent.VK_BACK_SPACE) game.makeRandomMove(new Random());
-
-		brain.sendBrainInputs(game, brain.getBrain());
+		
+		brain.sendBrainInputs(game, shownBrain);
 		render();
 	}
 	
+	/**
+	 * Start training generations on the training thread until the returned job is cancelled.
+	 * Cancelling the job interrupts the training thread, the generation being trained is finished before the loop ends,
+	 * so a loop started after cancelling another one only starts once the other has ended
+	 * @param x true to train as X, false to train as O
+	 * @return the job of the loop
+	 */
+	private Future<?> startLoop(boolean x){
+		return trainer.submit(() -> {
+			while(!Thread.currentThread().isInterrupted()) trainGeneration(x);
+		});
+	}
+	
 	/**
 	 * Draws the current state of the simulator to the buffered image
 	 */
@@ -184,47 +286,24 @@ public class Main{
 		int x = 10, y = 30;
 		game.render(g, x, y);
 		
-		//draw the neural net
-		g.setStroke(new BasicStroke(2f));
-		Node[][] n = brain.getBrain().getNodes();
+		//draw the weights of the neural net, which only change when the brain does
+		Node[][] n = shownBrain.getNodes();
 		int layerX = 400;
 		int nodeY = 50;
 		int nodeSize = 40;
 		int nodeXSpace = 120;
 		int nodeYSpace = 50;
-		//draw the lines from the board to the hidden nodes
-		for(int i = 0; i < n[0].length; i++){
-			int tileX = (int)(x + (i % 3 + .5) * TicTacToe.SIZE);
-			int tileY = (int)(y + (i / 3 + .5) * TicTacToe.SIZE);
-			
-			for(int j = 0; j < n[1].length; j++){
-				double v = n[1][j].getWeight(i);
-				double fade = 255.0 * Math.abs(v);
-				
-				if(v < 0) g.setColor(new Color(255, 0, 0, (int)fade));
-				else g.setColor(new Color(0, 0, 255, (int)fade));
-				
-				g.drawLine(tileX, tileY, layerX, nodeY + j * nodeYSpace);
-			}
-		}
-		//draw all the other lines between layers
-		for(int i = 1; i < n.length - 1; i++){
-			for(int j = 0; j < n[i + 1].length; j++){
-				for(int h = 0; h < n[i].length; h++){
-					double v = n[i + 1][j].getWeight(h);
-					double fade = 255.0 * Math.abs(v);
-					
-					if(v < 0) g.setColor(new Color(255, 0, 0, (int)fade));
-					else g.setColor(new Color(0, 0, 255, (int)fade));
-					
-					g.drawLine(layerX + nodeXSpace * i, nodeY + j * nodeYSpace,
-							   layerX + nodeXSpace * (i - 1), nodeY + h * nodeYSpace);
-				}
-			}
+		if(weightNet != shownBrain || weightVersion != shownBrain.getVersion()){
+			drawWeights(n, x, y, layerX, nodeY, nodeXSpace, nodeYSpace);
+			weightNet = shownBrain;
+			weightVersion = shownBrain.getVersion();
 		}
+		g.drawImage(weightImage, 0, 0, null);
+		
 		//draw the nodes of each hidden layer and output layer
 		int nx  = 0;
 		int ny = 0;
+		g.setFont(VALUE_FONT);
 		for(int i = 1; i < n.length; i++){
 			for(int j = 0; j < n[i].length; j++){
 				g.setColor(Color.BLACK);
@@ -233,32 +312,30 @@ public class Main{
 				g.fillOval(nx, ny, nodeSize, nodeSize);
 				
 				double v = n[i][j].getValue();
-				double fade = 255.0 * (1 - Math.abs(v));
+				int fade = getRampIndex(1 - Math.abs(v));
 				
-				if(v < 0) g.setColor(new Color(255, (int)fade, (int)fade));
-				else g.setColor(new Color((int)fade, (int)fade, 255));
+				if(v < 0) g.setColor(NEGATIVE_VALUES[fade]);
+				else g.setColor(POSITIVE_VALUES[fade]);
 				
 				g.fillOval(nx + 2, ny + 2, nodeSize - 4, nodeSize - 4);
 				
 				g.setColor(Color.BLACK);
-				g.setFont(new Font(FONT, Font.PLAIN, (int)(nodeSize * .5)));
 				g.drawString((int)(v * 1000) + " ", nx + 4, (int)(ny + nodeSize * .7));
 			}
 		}
 		//draw the number of times it has been trained
 		g.setColor(Color.BLACK);
-		g.setFont(new Font(FONT, Font.PLAIN, 20));
-		g.drawString("Trained " + brain.timesTrained() + " times", x, ny + nodeSize);
+		g.setFont(TEXT_FONT);
+		g.drawString("Trained " + shownTimesTrained + " times", x, ny + nodeSize);
 		
 		//render instructions
 		g.setColor(Color.BLACK);
-		g.setFont(new Font(FONT, Font.PLAIN, 20));
 		x = TicTacToe.SIZE * 3 + 400;
 		y = 50;
 		g.drawString("Space: reset game", x, y += 25);
 		g.drawString("G: show/hide graph", x, y += 25);
 		g.drawString("P: toggle AI training on X or O", x, y += 25);
-		if(brain.isPlayingAsX()) g.drawString("Training as X", x, y += 25);
+		if(playAsX) g.drawString("Training as X", x, y += 25);
 		else g.drawString("Training as O", x, y += 25);
 		g.drawString("1: Train the AI with 1 set of games as X", x, y += 25);
 		g.drawString("2: Train the AI with 1 set of games as O", x, y += 25);
@@ -278,8 +355,8 @@ public class Main{
 		
 		//draw loop state
 		g.drawString("Currently:", x, y += 25);
-		if(loopingTrain){
-			if(brain.isPlayingAsX()) g.drawString("Looping X", x, y += 25);
+		if(loopingTrain != null){
+			if(playAsX) g.drawString("Looping X", x, y += 25);
 			else g.drawString("Looping O", x, y += 25);
 		}
 		else{
@@ -287,6 +364,65 @@ public class Main{
 		}
 	}
 	
+	/**
+	 * Draw a line for every weight of the shown brain to weightImage, replacing what was there
+	 * @param n the nodes of the shown brain
+	 * @param x the x coordinate of the game board
+	 * @param y the y coordinate of the game board
+	 * @param layerX the x coordinate of the first hidden layer
+	 * @param nodeY the y coordinate of the first node of each layer
+	 * @param nodeXSpace the space between each layer
+	 * @param nodeYSpace the space between each node of a layer
+	 */
+	private void drawWeights(Node[][] n, int x, int y, int layerX, int nodeY, int nodeXSpace, int nodeYSpace){
+		Graphics2D g = weightImage.createGraphics();
+		g.setComposite(AlphaComposite.Clear);
+		g.fillRect(0, 0, WIDTH, HEIGHT);
+		g.setComposite(AlphaComposite.SrcOver);
+		g.setStroke(WEIGHT_STROKE);
+		
+		//draw the lines from the board to the hidden nodes
+		for(int i = 0; i < n[0].length; i++){
+			int tileX = (int)(x + (i % 3 + .5) * TicTacToe.SIZE);
+			int tileY = (int)(y + (i / 3 + .5) * TicTacToe.SIZE);
+			
+			for(int j = 0; j < n[1].length; j++){
+				setWeightColor(g, n[1][j].getWeight(i));
+				g.drawLine(tileX, tileY, layerX, nodeY + j * nodeYSpace);
+			}
+		}
+		//draw all the other lines between layers
+		for(int i = 1; i < n.length - 1; i++){
+			for(int j = 0; j < n[i + 1].length; j++){
+				for(int h = 0; h < n[i].length; h++){
+					setWeightColor(g, n[i + 1][j].getWeight(h));
+					g.drawLine(layerX + nodeXSpace * i, nodeY + j * nodeYSpace,
+							   layerX + nodeXSpace * (i - 1), nodeY + h * nodeYSpace);
+				}
+			}
+		}
+		g.dispose();
+	}
+	
+	/**
+	 * Set the color of the given graphics to the color of a line for a weight, red for negative, blue for positive, more see through for weights closer to 0
+	 * @param g
+	 * @param v
+	 */
+	private static void setWeightColor(Graphics2D g, double v){
+		int fade = getRampIndex(Math.abs(v));
+		if(v < 0) g.setColor(NEGATIVE_WEIGHTS[fade]);
+		else g.setColor(POSITIVE_WEIGHTS[fade]);
+	}
+	
+	/**
+	 * @param v a number in the range [0, 1]
+	 * @return the index of the color for the given number in one of the color ramps
+	 */
+	private static int getRampIndex(double v){
+		return Math.max(0, Math.min(255, (int)(255.0 * v)));
+	}
+	
 	/**
 	 * Updates the frame to the current state of the simulation
 	 */
@@ -327,24 +463,14 @@ public class Main{
 	}
 	
 	/**
-	 * start a loop that updates the frame a few times a second
+	 * Start the simulation in a window, or train without a window if any arguments are given or there is no display, see HeadlessTrainer
+	 * @param args
 	 */
-	private void start(){
-		while(running){
-			try{
-				if(loopingTrain){
-					brain.train(TEST_TIMES, TEST_OFFSPRING);
-					render();
-				}
-				else{
-					Thread.sleep(300);
-				}
-			}catch(InterruptedException e){}
-		}
-	}
-	
 	public static void main(String[] args){
-		instance = new Main();
-		instance.start();
+		if(args.length > 0 || GraphicsEnvironment.isHeadless()){
+			HeadlessTrainer.main(args);
+			return;
+		}
+		SwingUtilities.invokeLater(() -> instance = new Main());
 	}
 }
@@ -1,5 +1,6 @@
 package menu.component.graph;
 
+import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Component;
@@ -13,8 +14,8 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.text.DecimalFormat;
-import java.util.ArrayList;
 
+import game.History;
 import menu.Main;
 import menu.component.MenuComponent;
 import menu.input.InputControl;
@@ -28,15 +29,78 @@ public class LineGraph extends MenuComponent implements InputControl{
 	public static final int MIN_ZOOM = -10;
 	
 	/**
-	 * The image that keeps track of the data drawn to this graph
+	 * How much the number of points the x axis has room for grows by when a point doesn't fit
+	 */
+	public static final double GROWTH = 1.25;
+	/**
+	 * The part of the range of the data added above and below it when the y axis is scaled, so a new point rarely needs the axis to be scaled again
+	 */
+	public static final double MARGIN = .1;
+	
+	private static final Color SCALE_COLOR = new Color(100, 100, 100);
+	private static final Font LABEL_FONT = new Font(Main.FONT, Font.PLAIN, 14);
+	private static final BasicStroke THIN = new BasicStroke(1f);
+	private static final BasicStroke THICK = new BasicStroke(2f);
+	private static final Color CLEAR = new Color(0, 0, 0, 0);
+	
+	/**
+	 * The image with the background, scale lines, and labels of this graph, only drawn again when the axes change
+	 */
+	private BufferedImage axes;
+	
+	/**
+	 * The image with the lines of the data of this graph, new points are added to it without drawing the rest again
 	 */
 	private BufferedImage graph;
 	
+	/**
+	 * The image with the lines of the last bucket when it doesn't have all of its points yet, drawn again each time a point is added to the bucket. 
+	 * Once the bucket has all of its points, it is drawn to graph instead
+	 */
+	private BufferedImage tail;
+	
 	/**
 	 * The amount of data points currently displayed on the graph
 	 */
 	private int currentSize;
 	
+	/**
+	 * The number of rows ever added to data when it was last drawn, including rows that have been replaced
+	 */
+	private long shownTotal;
+	
+	/**
+	 * The number of the row at the start of the x axis, counted from the first row ever added to data, always the first row of a bucket of the current level of detail
+	 */
+	private long origin;
+	
+	/**
+	 * The number of data points the x axis has room for, starting at origin
+	 */
+	private int capacity;
+	
+	/**
+	 * The lowest and highest values of the data
+	 */
+	private double low;
+	private double big;
+	
+	/**
+	 * The lowest and highest values the y axis has room for
+	 */
+	private double shownLow;
+	private double shownBig;
+	
+	/**
+	 * The position and size of the area with the lines of the graph, and the values used to find where a point is drawn, 
+	 * found each time the axes are drawn
+	 */
+	private double areaX;
+	private double areaY;
+	private double xDist;
+	private double yScale;
+	private double xAxisPos;
+	
 	/**
 	 * the space to the left and right of the lines of the graph that has no lines
 	 */
@@ -49,9 +113,22 @@ public class LineGraph extends MenuComponent implements InputControl{
 	private LineGraphDetail[] lineDetails;
 	
 	/**
-	 * The data that was last put into the graph
+	 * The rows of the graph, one column for each line, read each time the graph is drawn instead of being copied, or null for no data
+	 */
+	private History.View data;
+	
+	/**
+	 * The level of detail being drawn, each bucket of level l is 2^l points in a row, the lowest level where each bucket is at least one pixel wide. 
+	 * Bucket k is the rows [k * 2^l, (k + 1) * 2^l), counted from the first row ever added to data, the same as the buckets of History
+	 */
+	private int level;
+	
+	/**
+	 * The lowest, highest, and average value of each line in the buckets last found from data, reused each time buckets are found
 	 */
-	private ArrayList<double[]> lastData;
+	private double[] mins;
+	private double[] maxes;
+	private double[] means;
 	
 	/**
 	 * Object that keeps track of this graphs mouse input
@@ -88,14 +165,24 @@ public class LineGraph extends MenuComponent implements InputControl{
 		this.hSpace = hSpace;
 		
 		this.lineDetails = lineDetails;
-
+		
 		cameraPos = new Point2D.Double(0, 0);
 		scaleX = 0;
 		scaleY = 0;
 		
+		axes = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
 		graph = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
+		tail = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
 		
-		updateGraphImage(new ArrayList<double[]>());
+		data = null;
+		currentSize = 0;
+		shownTotal = 0;
+		origin = 0;
+		capacity = 0;
+		mins = new double[0];
+		maxes = new double[0];
+		means = new double[0];
+		drawAll();
 		
 		createControl();
 	}
@@ -104,14 +191,233 @@ public class LineGraph extends MenuComponent implements InputControl{
 		return currentSize;
 	}
 	
-	public void updateGraphImage(ArrayList<double[]> data){
-		lastData = data;
+	/**
+	 * Replace the data of this graph, and draw all of it
+	 * @param data the rows of the graph, one column for each line. The rows are not copied, the graph reads them each time it is drawn
+	 */
+	public void updateGraphImage(History.View data){
+		this.data = data;
+		findBounds();
+		origin = (data == null) ? 0 : shownTotal - currentSize;
+		capacity = currentSize;
+		drawAll();
+	}
+	
+	/**
+	 * Draw the rows added to the data since it was last drawn. Only the buckets with new rows are drawn, read from the buckets kept by the data, 
+	 * so the time taken doesn't depend on the number of rows. Everything is drawn again only when a row doesn't fit on the axes. 
+	 * If the data only keeps its most recent rows, the buckets that have no rows kept are taken off the graph, 
+	 * and once the x axis is full, everything is drawn again with the x axis starting at the oldest bucket kept
+	 */
+	public void addNewData(){
+		if(data == null) return;
+		//the oldest row kept is found from the same count of rows, so the two always agree
+		long total = data.getTotal();
+		if(total == shownTotal) return;
+		long first = data.getFirst(total);
+		long oldTotal = shownTotal;
+		long oldFirst = shownTotal - currentSize;
+		shownTotal = total;
+		currentSize = (int)(total - first);
+		//the level of detail can also change with the number of rows
+		if(total - origin > capacity || findLevel() != level){
+			findBounds();
+			drawAll();
+			return;
+		}
+		
+		//from the bucket of the first new row, which may be the last bucket that was drawn before it had all of its points
+		long from = Math.max(oldTotal, first) >> level;
+		long last = ((total - 1) >> level) + 1;
+		findBuckets(from - 1, last);
+		int columns = data.getColumns();
+		if(oldTotal == oldFirst){
+			low = Double.POSITIVE_INFINITY;
+			big = Double.NEGATIVE_INFINITY;
+		}
+		for(int b = columns; b < (last - from + 1) * columns; b++){
+			if(mins[b] < low) low = mins[b];
+			if(maxes[b] > big) big = maxes[b];
+		}
+		if(low < shownLow || big > shownBig){
+			drawAll();
+			return;
+		}
+		
+		double bucketWidth = xDist * (1 << level);
+		int startX = (int)Math.round(areaX + (from - (origin >> level)) * bucketWidth);
+		//the buckets with no rows kept, the first bucket kept is left as it is until everything is drawn again
+		if(first >> level > oldFirst >> level){
+			int x = (int)Math.round(areaX + ((first >> level) - (origin >> level)) * bucketWidth);
+			clear(graph, 0, x);
+		}
+		clear(tail, startX - 2, getWidth());
+		Graphics2D g = graph.createGraphics();
+		for(long k = from; k < last; k++){
+			//with less detail, the last bucket is drawn again for each of its points, until all of its points are added
+			if((k + 1) << level <= total) drawBucket(g, k, from - 1);
+			else drawBucket(tail, k, from - 1);
+		}
+		g.dispose();
+	}
+	
+	/**
+	 * Find the number of rows of the data, and the lowest and highest values of every row
+	 */
+	private void findBounds(){
+		shownTotal = (data == null) ? 0 : data.getTotal();
+		currentSize = (data == null) ? 0 : (int)(shownTotal - data.getFirst(shownTotal));
+		if(currentSize == 0) return;
+		low = data.getMin(0);
+		big = data.getMax(0);
+		for(int i = 1; i < data.getColumns(); i++){
+			low = Math.min(low, data.getMin(i));
+			big = Math.max(big, data.getMax(i));
+		}
+	}
+	
+	/**
+	 * Find the room on the axes for the current data, and draw the axes and every point again
+	 */
+	private void drawAll(){
+		//the level of detail depends on the room on the x axis, which depends on the bucket the x axis starts at, so they are found until none of them change
+		long first = shownTotal - currentSize;
+		while(true){
+			int oldCapacity = capacity;
+			int l = findLevel();
+			//the x axis keeps its start while the rows fit, so new rows can be added without moving the rest
+			long o = (origin >> l) << l;
+			if(o > first || shownTotal - o > capacity){
+				o = (first >> l) << l;
+				//when only the most recent rows are kept, leave room for more rows, so the start doesn't move again with each new row
+				if(data != null && data.getCapacity() > 0) capacity = Math.max(capacity, (int)(data.getCapacity() * GROWTH));
+			}
+			if(shownTotal - o > capacity) capacity = (int)Math.max(shownTotal - o, (long)(capacity * GROWTH));
+			if(l == level && o == origin && capacity == oldCapacity) break;
+			level = l;
+			origin = o;
+		}
+		double margin = (big - low) * MARGIN;
+		shownLow = low - margin;
+		shownBig = big + margin;
 		
-		//update current size
-		currentSize = data.size();
+		drawAxes();
 		
+		clear(graph, 0, getWidth());
+		clear(tail, 0, getWidth());
+		if(currentSize > 0){
+			//only draw the buckets that can be seen
+			double bucketWidth = xDist * (1 << level);
+			long start = origin >> level;
+			long full = shownTotal >> level;
+			long buckets = ((shownTotal - 1) >> level) + 1;
+			long from = Math.max(first >> level, start + (long)Math.floor(-areaX / bucketWidth) - 1);
+			long to = Math.min(buckets, start + (long)Math.ceil((getWidth() - areaX) / bucketWidth) + 1);
+			if(from >= to) return;
+			findBuckets(from - 1, to);
+			Graphics2D g = graph.createGraphics();
+			for(long k = from; k < Math.min(to, full); k++) drawBucket(g, k, from - 1);
+			g.dispose();
+			//the last bucket, if it doesn't have all of its points yet
+			if(full < to) drawBucket(tail, full, from - 1);
+		}
+	}
+	
+	/**
+	 * @return the lowest level of detail where each bucket is at least one pixel wide, for the current room on the x axis
+	 */
+	private int findLevel(){
+		double lineLength = (getWidth() - wSpace * 2) * getScale(scaleX) / capacity;
+		int l = 0;
+		while(l < History.MAX_LEVEL && (2L << l) <= currentSize && lineLength * (1 << l) < 1) l++;
+		return l;
+	}
+	
+	/**
+	 * Find the lowest, highest, and average value of each line in the given buckets of the current level of detail, read from one level of the buckets of data
+	 * @param from the first bucket
+	 * @param to the bucket after the last bucket
+	 */
+	private void findBuckets(long from, long to){
+		int length = (int)(to - from) * data.getColumns();
+		if(mins.length < length){
+			mins = new double[length];
+			maxes = new double[length];
+			means = new double[length];
+		}
+		data.getBuckets(level, from, to, shownTotal, mins, maxes, means);
+	}
+	
+	/**
+	 * Make every pixel of the given image clear, between the given x positions
+	 * @param img
+	 * @param from the x position of the first column of pixels cleared
+	 * @param to the x position after the last column of pixels cleared
+	 */
+	private void clear(BufferedImage img, int from, int to){
+		if(from >= to) return;
+		Graphics2D g = img.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.setColor(CLEAR);
+		g.fillRect(from, 0, to - from, getHeight());
+		g.dispose();
+	}
+	
+	/**
+	 * Draw the part of each line that goes to the given bucket of the current level of detail on the given image
+	 * @param img
+	 * @param k
+	 * @param from the first bucket last found with findBuckets
+	 */
+	private void drawBucket(BufferedImage img, long k, long from){
+		Graphics2D g = img.createGraphics();
+		drawBucket(g, k, from);
+		g.dispose();
+	}
+	
+	/**
+	 * Draw the part of each line that goes to the given bucket of the current level of detail. 
+	 * When a bucket has more than one point, a line from its lowest to its highest value is also drawn, so no point is hidden. 
+	 * The last bucket may not have all of its points yet, in which case it is drawn with the points it has
+	 * @param g
+	 * @param k
+	 * @param from the first bucket last found with findBuckets, it must include the given bucket, and the bucket before it
+	 */
+	private void drawBucket(Graphics2D g, long k, long from){
+		double bucketWidth = xDist * (1 << level);
+		double currentX = areaX + (k - (origin >> level)) * bucketWidth;
+		int columns = data.getColumns();
+		int b = (int)(k - from) * columns;
+		//a bucket with no rows kept has nothing to draw
+		if(Double.isNaN(means[b])) return;
+		for(int i = 0; i < columns; i++){
+			//set line thickness and color
+			g.setColor(lineDetails[i].getColor());
+			g.setStroke(lineDetails[i].getStroke());
+			
+			//the first point starts at the x axis, and the first point kept starts at its own value
+			double drawY = areaY + (xAxisPos - means[b + i] / yScale);
+			double lastY;
+			if(k == 0) lastY = areaY + xAxisPos;
+			else if(Double.isNaN(means[b - columns + i])) lastY = drawY;
+			else lastY = areaY + (xAxisPos - means[b - columns + i] / yScale);
+			
+			//draw line
+			int endX = (int)Math.round(currentX + bucketWidth);
+			g.drawLine((int)Math.round(currentX), (int)Math.round(lastY), endX, (int)Math.round(drawY));
+			if(level > 0){
+				g.drawLine(endX, (int)Math.round(areaY + (xAxisPos - mins[b + i] / yScale)),
+						   endX, (int)Math.round(areaY + (xAxisPos - maxes[b + i] / yScale)));
+			}
+		}
+	}
+	
+	/**
+	 * Draw the background, scale lines, and labels of this graph, for the room on the axes of the current data
+	 */
+	private void drawAxes(){
 		//create graphics object
-		Graphics2D g = (Graphics2D)graph.getGraphics();
+		Graphics2D g = axes.createGraphics();
 		
 		//draw background
 		g.setColor(Color.BLACK);
@@ -120,18 +426,14 @@ public class LineGraph extends MenuComponent implements InputControl{
 		g.fillRect(1, 1, getWidth() - 2, getHeight() - 2);
 		
 		//only continue if data is not empty
-		if(data.size() <= 0) return;
-		
-		//find biggest and lowest values in graph
-		double low = data.get(0)[0];
-		double big = low;
-		for(int i = 0; i < data.size(); i++){
-			for(int j = 0; j < data.get(i).length; j++){
-				low = Math.min(low, data.get(i)[j]);
-				big = Math.max(big, data.get(i)[j]);
-			}
+		if(currentSize <= 0){
+			g.dispose();
+			return;
 		}
 		
+		double low = shownLow;
+		double big = shownBig;
+		
 		//find the appropriate x and y positions, and width and height of the new graph
 		double xx = wSpace * getScale(scaleX) + cameraPos.x;
 		double yy = hSpace * getScale(scaleY) + cameraPos.y;
@@ -140,7 +442,7 @@ public class LineGraph extends MenuComponent implements InputControl{
 		
 		//determine the number of lines that should be drawn for this graph, based on the height
 		int numLines = (int)Math.round(hh / 40);
-
+		
 		//this is the ratio between the total height that the graph lines can take up and the range of the graph values
 		double yScale = Math.abs(big - low) / (hh);
 		
@@ -157,24 +459,26 @@ public class LineGraph extends MenuComponent implements InputControl{
 		DecimalFormat df = new DecimalFormat("#");
 		df.setMinimumFractionDigits(3);
 		df.setMinimumIntegerDigits(1);
-
+		
 		//the x position of the y axis on the graph
 		double yAxisPos = xx;
 		
 		//the distance between each x axis line on the graph
-		double lineLength = ww / data.size();
-
+		double lineLength = ww / capacity;
+		
 		//the amount of data points between each of the x axis label lines, where the first line is the y axis
 		int skipAxis = Math.max(1, (int)Math.round(40 / lineLength));
 		
+		g.setFont(LABEL_FONT);
+		
 		//draw the scale lines
 		for(double i = big + lineDist; i > low - lineDist * 2; i -= lineDist){
-			g.setColor(new Color(100, 100, 100));
+			g.setColor(SCALE_COLOR);
 			
 			//determine if this line is the x axis, if it is then this line should be thicker
 			boolean zero = Math.abs(i) < lineDist * .5;
-			if(zero) g.setStroke(new BasicStroke(2f));
-			else g.setStroke(new BasicStroke(1f));
+			if(zero) g.setStroke(THICK);
+			else g.setStroke(THIN);
 			
 			//the y position of the line
 			double outY = yy + (xAxisPos - i / yScale);
@@ -182,7 +486,6 @@ public class LineGraph extends MenuComponent implements InputControl{
 			g.drawLine((int)Math.round(xx), (int)Math.round(outY), (int)Math.round(xx + ww + lineLength * 2), (int)Math.round(outY));
 			//draw the text label for the line
 			g.setColor(Color.BLACK);
-			g.setFont(new Font(Main.FONT, Font.PLAIN, 14));
 			String s;
 			if(zero) s = df.format(0);
 			else s = df.format(i);
@@ -190,56 +493,36 @@ public class LineGraph extends MenuComponent implements InputControl{
 		}
 		
 		//draw x axis labels and lines
-		for(int i = 0; i <= data.size() + skipAxis; i += skipAxis){
-			g.setColor(new Color(100, 100, 100));
+		for(int i = 0; i <= capacity + skipAxis; i += skipAxis){
+			g.setColor(SCALE_COLOR);
 			
 			//set the thickness
-			if(i == 0) g.setStroke(new BasicStroke(2f));
-			else g.setStroke(new BasicStroke(1f));
+			if(i == 0) g.setStroke(THICK);
+			else g.setStroke(THIN);
 			
 			//draw the line
 			g.drawLine((int)Math.round(yAxisPos + i * lineLength), (int)Math.round(yy - lineDist / yScale * 2),
 					   (int)Math.round(yAxisPos + i * lineLength), (int)Math.round(yy + hh + lineDist / yScale * 2));
-			
+					
 			//draw the text label for the line
 			g.setColor(Color.BLACK);
-			g.setFont(new Font(Main.FONT, Font.PLAIN, 14));
-			g.drawString(i + "", (int)Math.round(yAxisPos + i * lineLength + 2), (int)Math.round(Math.min(yy + hh, getHeight() - hSpace)));
+			g.drawString((origin + i) + "", (int)Math.round(yAxisPos + i * lineLength + 2), (int)Math.round(Math.min(yy + hh, getHeight() - hSpace)));
 		}
+		g.dispose();
 		
-		//determine distance between each of the x coordinates for each column of data
-		double xDist = ww / data.size();
-		
-		//now draw the lines that represent that actual data
-		for(int i = 0; i < data.get(0).length; i++){
-			//the current x coordinate to draw the data
-			double currentX = xx;
-			//the y coordinate of the last drawn point
-			double lastY = yy + xAxisPos;
-			for(int j = 0; j < data.size(); j++){
-				//set line thickness and color
-				g.setColor(lineDetails[i].getColor());
-				g.setStroke(new BasicStroke(lineDetails[i].getThickness()));
-				
-				//find y position
-				double drawY = yy + (xAxisPos - data.get(j)[i] / yScale);
-				
-				//draw line
-				g.drawLine((int)Math.round(currentX), (int)Math.round(lastY),
-						   (int)Math.round(currentX + xDist), (int)Math.round(drawY));
-				
-				//update positions for next line
-				lastY = drawY;
-				currentX += xDist;
-			}
-		}
+		//keep the values needed to draw new points
+		areaX = xx;
+		areaY = yy;
+		xDist = lineLength;
+		this.yScale = yScale;
+		this.xAxisPos = xAxisPos;
 	}
 	
 	/**
 	 * Draw this graph again with the same data it used last time
 	 */
 	public void redrawGraph(){
-		updateGraphImage(lastData);
+		drawAll();
 	}
 	
 	@Override
@@ -247,16 +530,18 @@ public class LineGraph extends MenuComponent implements InputControl{
 	
 	@Override
 	public void render(Graphics g){
+		g.drawImage(axes, getX(), getY(), getWidth(), getHeight(), null);
 		g.drawImage(graph, getX(), getY(), getWidth(), getHeight(), null);
+		g.drawImage(tail, getX(), getY(), getWidth(), getHeight(), null);
 	}
-
+	
 	@Override
 	public void link(Component c){
 		c.addMouseListener(mouseInput);
 		c.addMouseMotionListener(mouseInput);
 		c.addMouseWheelListener(mouseInput);
 	}
-
+	
 	@Override
 	public void unlink(Component c){
 		c.removeMouseListener(mouseInput);
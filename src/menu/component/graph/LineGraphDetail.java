@@ -1,5 +1,6 @@
 package menu.component.graph;
 
+import java.awt.BasicStroke;
 import java.awt.Color;
 
 /**
@@ -10,8 +11,13 @@ public class LineGraphDetail{
 	private float thickness;
 	private Color color;
 	
+	/**
+	 * The stroke for drawing a line with this thickness, made once instead of each time a line is drawn
+	 */
+	private BasicStroke stroke;
+	
 	public LineGraphDetail(float thickness, Color color){
-		this.thickness = thickness;
+		setThickness(thickness);
 		this.color = color;
 	}
 	
@@ -26,5 +32,9 @@ public class LineGraphDetail{
 	}
 	public void setThickness(float thickness){
 		this.thickness = thickness;
+		stroke = new BasicStroke(thickness);
+	}
+	public BasicStroke getStroke(){
+		return stroke;
 	}
 }
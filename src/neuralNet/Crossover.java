@@ -0,0 +1,18 @@
+package neuralNet;
+
+/**
+ * The ways the weights of two parent nets can be mixed to make a child net
+ */
+public enum Crossover{
+	
+	/**
+	 * Each weight and bias is taken from one of the parents, picked separately for every weight
+	 */
+	UNIFORM,
+	
+	/**
+	 * Every weight and bias of a layer is taken from the same parent, picked separately for every layer
+	 */
+	LAYER;
+	
+}
@@ -0,0 +1,254 @@
+package neuralNet;
+
+import java.util.SplittableRandom;
+
+/**
+ * Trains a Net to give target outputs for a set of inputs, by moving its weights against the gradient of the squared error of its outputs.
+ * Each node uses the sigmoid adjusted to [-1, 1], f(x) = 2 / (1 + e^-x) - 1, which has the derivative (1 - f(x)^2) / 2, so the gradient can be found from the node values alone.
+ * Weights are moved with Adam, which keeps a running average of each weight's gradient and squared gradient, so every weight moves at a similar speed.
+ * After each step, every weight and bias is clamped to [-1, 1], the same range mutation keeps them in, so a trained net can still be evolved
+ */
+public class GradientTrainer{
+	
+	/**
+	 * How much of the running average of each gradient is kept each step
+	 */
+	public static final double BETA_1 = .9;
+	/**
+	 * How much of the running average of each squared gradient is kept each step
+	 */
+	public static final double BETA_2 = .999;
+	/**
+	 * Added to the size of each gradient to avoid dividing by 0
+	 */
+	public static final double EPSILON = 1e-8;
+	
+	/**
+	 * The net being trained
+	 */
+	private Net net;
+	
+	/**
+	 * The number of nodes in each layer of the net
+	 */
+	private int[] layers;
+	
+	/**
+	 * The index in parameters where the first row of each layer starts, laid out the same way as the net, see Net.getParameters
+	 */
+	private int[] weightOffsets;
+	
+	/**
+	 * The index in values where the first node of each layer starts
+	 */
+	private int[] valueOffsets;
+	
+	/**
+	 * The weights and biases of the net, which are given to the net at the end of each epoch
+	 */
+	private double[] parameters;
+	
+	/**
+	 * The total gradient of each weight and bias over the current batch
+	 */
+	private double[] gradient;
+	
+	/**
+	 * The running average of each gradient
+	 */
+	private double[] mean;
+	
+	/**
+	 * The running average of each squared gradient
+	 */
+	private double[] variance;
+	
+	/**
+	 * The value of every node for the current input, layer by layer
+	 */
+	private double[] values;
+	
+	/**
+	 * The gradient of the error with respect to the total going into each node, before the sigmoid, in the same layout as values
+	 */
+	private double[] deltas;
+	
+	/**
+	 * The order the inputs are used in, shuffled each epoch
+	 */
+	private int[] order;
+	
+	/**
+	 * The size of each step
+	 */
+	private double learningRate;
+	
+	/**
+	 * The number of steps taken so far
+	 */
+	private int steps;
+	
+	/**
+	 * @param net the net to train, its weights are replaced at the end of each epoch
+	 * @param learningRate the size of each step, .01 is a good start
+	 */
+	public GradientTrainer(Net net, double learningRate){
+		this.net = net;
+		this.learningRate = learningRate;
+		
+		layers = new int[net.getNumLayers()];
+		weightOffsets = new int[layers.length];
+		valueOffsets = new int[layers.length];
+		int weightTotal = 0;
+		int valueTotal = 0;
+		for(int i = 0; i < layers.length; i++){
+			layers[i] = net.getLayerSize(i);
+			valueOffsets[i] = valueTotal;
+			valueTotal += layers[i];
+			if(i > 0){
+				weightOffsets[i] = weightTotal;
+				weightTotal += layers[i] * (layers[i - 1] + 1);
+			}
+		}
+		
+		parameters = new double[net.getNumParameters()];
+		net.getParameters(parameters);
+		gradient = new double[parameters.length];
+		mean = new double[parameters.length];
+		variance = new double[parameters.length];
+		values = new double[valueTotal];
+		deltas = new double[valueTotal];
+		order = new int[0];
+		steps = 0;
+	}
+	
+	/**
+	 * Go through every input once, in a random order, taking one step for each batch
+	 * @param inputs the inputs, one row of one value for each input node after another
+	 * @param targets the output each input should give, one row of one value for each output node after another, each in the range [-1, 1]
+	 * @param mask for each target, 1 if the error of the output counts, 0 if the output can be anything
+	 * @param count the number of rows of inputs
+	 * @param batchSize the number of inputs used for each step
+	 * @param rand the random numbers used to shuffle the inputs
+	 * @return the average squared error of every output that counts, over the whole epoch
+	 */
+	public double trainEpoch(double[] inputs, double[] targets, double[] mask, int count, int batchSize, SplittableRandom rand){
+		if(order.length != count){
+			order = new int[count];
+			for(int i = 0; i < count; i++) order[i] = i;
+		}
+		for(int i = count - 1; i > 0; i--){
+			int j = rand.nextInt(i + 1);
+			int o = order[i];
+			order[i] = order[j];
+			order[j] = o;
+		}
+		
+		double error = 0;
+		double counted = 0;
+		for(int start = 0; start < count; start += batchSize){
+			int end = Math.min(count, start + batchSize);
+			for(int i = 0; i < gradient.length; i++) gradient[i] = 0;
+			for(int b = start; b < end; b++){
+				error += addGradient(inputs, targets, mask, order[b]);
+			}
+			step(end - start);
+		}
+		int outputs = layers[layers.length - 1];
+		for(int i = 0; i < count * outputs; i++) counted += mask[i];
+		
+		net.setParameters(parameters);
+		return error / counted;
+	}
+	
+	/**
+	 * Run the net on one input, and add the gradient of its squared error to gradient
+	 * @param inputs
+	 * @param targets
+	 * @param mask
+	 * @param row the row of the input to use
+	 * @return the total squared error of the outputs that count
+	 */
+	private double addGradient(double[] inputs, double[] targets, double[] mask, int row){
+		Activation activation = net.getActivation();
+		System.arraycopy(inputs, row * layers[0], values, 0, layers[0]);
+		for(int i = 1; i < layers.length; i++){
+			int prev = layers[i - 1];
+			for(int j = 0; j < layers[i]; j++){
+				int w = weightOffsets[i] + j * (prev + 1);
+				double t = parameters[w + prev];
+				for(int k = 0; k < prev; k++) t += parameters[w + k] * values[valueOffsets[i - 1] + k];
+				values[valueOffsets[i] + j] = activation.apply(t);
+			}
+		}
+		
+		//the error of each output, (y - target)^2 / 2 has the gradient y - target
+		int last = layers.length - 1;
+		double error = 0;
+		for(int j = 0; j < layers[last]; j++){
+			int t = row * layers[last] + j;
+			double y = values[valueOffsets[last] + j];
+			double diff = (y - targets[t]) * mask[t];
+			error += diff * diff;
+			deltas[valueOffsets[last] + j] = diff * (1 - y * y) * .5;
+		}
+		
+		//go back through each layer, finding the deltas of the layer before it, and the gradient of each weight
+		for(int i = last; i > 0; i--){
+			int prev = layers[i - 1];
+			int prevStart = valueOffsets[i - 1];
+			if(i > 1){
+				for(int k = 0; k < prev; k++) deltas[prevStart + k] = 0;
+			}
+			for(int j = 0; j < layers[i]; j++){
+				double d = deltas[valueOffsets[i] + j];
+				if(d == 0) continue;
+				int w = weightOffsets[i] + j * (prev + 1);
+				for(int k = 0; k < prev; k++){
+					gradient[w + k] += d * values[prevStart + k];
+					if(i > 1) deltas[prevStart + k] += d * parameters[w + k];
+				}
+				gradient[w + prev] += d;
+			}
+			if(i > 1){
+				for(int k = 0; k < prev; k++){
+					double y = values[prevStart + k];
+					deltas[prevStart + k] *= (1 - y * y) * .5;
+				}
+			}
+		}
+		return error;
+	}
+	
+	/**
+	 * Move every weight and bias with Adam, using the average gradient of the current batch
+	 * @param batch the number of inputs in the current batch
+	 */
+	private void step(int batch){
+		steps++;
+		double meanScale = 1 / (1 - Math.pow(BETA_1, steps));
+		double varianceScale = 1 / (1 - Math.pow(BETA_2, steps));
+		for(int i = 0; i < parameters.length; i++){
+			double g = gradient[i] / batch;
+			mean[i] = BETA_1 * mean[i] + (1 - BETA_1) * g;
+			variance[i] = BETA_2 * variance[i] + (1 - BETA_2) * g * g;
+			double move = learningRate * mean[i] * meanScale / (Math.sqrt(variance[i] * varianceScale) + EPSILON);
+			parameters[i] = Node.validRange(parameters[i] - move);
+		}
+	}
+	
+	/**
+	 * @param learningRate the size of each step
+	 */
+	public void setLearningRate(double learningRate){
+		this.learningRate = learningRate;
+	}
+	
+	/**
+	 * @return the net being trained
+	 */
+	public Net getNet(){
+		return net;
+	}
+	
+}
@@ -0,0 +1,145 @@
+package neuralNet;
+
+/**
+ * The buffers needed to run a Net on one set of inputs without creating any new objects.
+ * A context is not thread safe, so each thread should use its own, which can be obtained with forThread()
+ */
+public class InferenceContext{
+	
+	/**
+	 * The context belonging to each thread
+	 */
+	private static final ThreadLocal<InferenceContext> CONTEXTS = new ThreadLocal<InferenceContext>(){
+		@Override
+		protected InferenceContext initialValue(){
+			return new InferenceContext();
+		}
+	};
+	
+	/**
+	 * The values to put into the input layer of a net
+	 */
+	private double[] inputs;
+	
+	/**
+	 * The value of every node of the last net that was run, laid out the same way as the net lays out its own values
+	 */
+	private double[] values;
+	
+	/**
+	 * The values of the output layer of the last net that was run
+	 */
+	private double[] outputs;
+	
+	/**
+	 * The node values of one layer for a block of inputs in a batch, used in turns with batchB
+	 */
+	private double[] batchA;
+	
+	/**
+	 * The node values of one layer for a block of inputs in a batch, used in turns with batchA
+	 */
+	private double[] batchB;
+	
+	/**
+	 * A buffer for the caller to put the outputs of a batch in
+	 */
+	private double[] batchOutputs;
+	
+	/**
+	 * Create a context with empty buffers, they grow the first time a net is used with this context
+	 */
+	public InferenceContext(){
+		inputs = new double[0];
+		values = new double[0];
+		outputs = new double[0];
+		batchA = new double[0];
+		batchB = new double[0];
+		batchOutputs = new double[0];
+	}
+	
+	/**
+	 * Make sure the buffers of this context are large enough for the given net. Only creates new buffers if the current ones are the wrong size
+	 * @param inputSize the number of nodes in the input layer
+	 * @param valueSize the total number of nodes in the net
+	 * @param outputSize the number of nodes in the output layer
+	 */
+	void ensureSize(int inputSize, int valueSize, int outputSize){
+		if(inputs.length != inputSize) inputs = new double[inputSize];
+		if(values.length < valueSize) values = new double[valueSize];
+		if(outputs.length != outputSize) outputs = new double[outputSize];
+	}
+	
+	/**
+	 * Make sure the batch buffers of this context can each hold the given number of values
+	 * @param size
+	 */
+	void ensureBatchSize(int size){
+		if(batchA.length < size) batchA = new double[size];
+		if(batchB.length < size) batchB = new double[size];
+	}
+	
+	/**
+	 * Make sure this context can hold the inputs and outputs of the given net, call before filling in the inputs for a net with a different input layer size
+	 * @param net
+	 * @return this context
+	 */
+	public InferenceContext prepare(Net net){
+		net.prepareContext(this);
+		return this;
+	}
+	
+	/**
+	 * @return the buffer to write the inputs of the next net to run in
+	 */
+	public double[] getInputs(){
+		return inputs;
+	}
+	
+	/**
+	 * @return the node values buffer, only for use by Net
+	 */
+	double[] getValues(){
+		return values;
+	}
+	
+	/**
+	 * @return the first batch buffer, only for use by Net
+	 */
+	double[] getBatchA(){
+		return batchA;
+	}
+	
+	/**
+	 * @return the second batch buffer, only for use by Net
+	 */
+	double[] getBatchB(){
+		return batchB;
+	}
+	
+	/**
+	 * Get a buffer to put the outputs of a batch in, so that a new one does not need to be made for each batch. 
+	 * This is the same array every time, unless it needs to grow, so it should not be kept
+	 * @param size the number of values the buffer needs to hold
+	 * @return the buffer, which may be longer than size
+	 */
+	public double[] getBatchOutputs(int size){
+		if(batchOutputs.length < size) batchOutputs = new double[size];
+		return batchOutputs;
+	}
+	
+	/**
+	 * @return the outputs of the last net that was run with this context. This is the same array every time, so it should not be kept
+	 */
+	public double[] getOutputs(){
+		return outputs;
+	}
+	
+	/**
+	 * @return the context that belongs to the current thread
+	 */
+	public static InferenceContext forThread(){
+		return CONTEXTS.get();
+	}
+	
+}
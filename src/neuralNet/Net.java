@@ -1,5 +1,8 @@
 package neuralNet;
 
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
 public class Net{
 	
 	/**
@@ -16,30 +19,109 @@ public class Net{
 	public static final double MIN_MUTABILITY = -2;
 	
 	/**
-	 * The nodes of this neural net, must always have at least 2 layers, input and output, the rest are hidden layers
+	 * The number of inputs in a batch that are run through every layer before moving on to the next inputs, 
+	 * small enough that the values of one block stay in the cache from one layer to the next
+	 */
+	public static final int BATCH_BLOCK = 64;
+	
+	/**
+	 * The number of nodes in each layer of this net, must always have at least 2 layers, input and output, the rest are hidden layers
+	 */
+	private int[] layers;
+	
+	/**
+	 * Every weight and bias of this net in one array. For each layer after the input layer, each node has a row of one weight for every node
+	 * in the previous layer, followed by the bias of that node. Rows are stored one after another, layer by layer
+	 */
+	private double[] weights;
+	
+	/**
+	 * The index in weights where the first row of each layer starts, the input layer has no rows
+	 */
+	private int[] weightOffsets;
+	
+	/**
+	 * The current value of every node in this net, layer by layer, based on the last data fed into this net
+	 */
+	private double[] values;
+	
+	/**
+	 * The index in values where the first node of each layer starts
+	 */
+	private int[] valueOffsets;
+	
+	/**
+	 * Views of the nodes of this net, only created when they are asked for
 	 */
 	private Node[][] nodes;
 	
+	/**
+	 * The way this net calculates the sigmoid function of each node
+	 */
+	private Activation activation;
+	
 	/**
 	 * A number in the range [-2, 2] that represents the range that this Net can change curing a mutation
 	 */
 	private double mutability;
 	
+	/**
+	 * The number of times this net has been given new weights by being mutated into, used to tell when a reused net has changed
+	 */
+	private int version;
+	
 	/**
 	 * @param layers the number of nodes in each layer, must be at least 2 layers, the first is the input, the last is the output, the rest are hidden
 	 */
 	public Net(int... layers){
-		nodes = new Node[layers.length][];
-		for(int i = 0; i < nodes.length; i++) nodes[i] = new Node[layers[i]];
-
-		for(int i = 0; i < nodes.length; i++){
-			for(int j = 0; j < nodes[i].length; j++){
-				if(i == 0) nodes[i][j] = new Node(0);
-				else nodes[i][j] = new Node(nodes[i - 1].length);
-			}
+		this(new SplittableRandom(), layers);
+	}
+	
+	/**
+	 * @param rand the random numbers used to pick the weights, biases, and mutability of this net, so the same seed always makes the same net
+	 * @param layers the number of nodes in each layer, must be at least 2 layers, the first is the input, the last is the output, the rest are hidden
+	 */
+	public Net(SplittableRandom rand, int... layers){
+		this(layers, rand);
+		mutability = MAX_MUTABILITY - rand.nextDouble() * Math.abs(MAX_MUTABILITY - MIN_MUTABILITY);
+	}
+	
+	/**
+	 * Create a net with the given layers
+	 * @param layers the number of nodes in each layer
+	 * @param rand the random numbers used to give every weight and bias a random value, or null to leave them all at 0
+	 */
+	Net(int[] layers, SplittableRandom rand){
+		this.layers = layers.clone();
+		
+		weightOffsets = new int[layers.length];
+		valueOffsets = new int[layers.length];
+		int weightTotal = 0;
+		int valueTotal = layers[0];
+		for(int i = 1; i < layers.length; i++){
+			weightOffsets[i] = weightTotal;
+			valueOffsets[i] = valueTotal;
+			weightTotal += layers[i] * (layers[i - 1] + 1);
+			valueTotal += layers[i];
 		}
 		
-		mutability = MAX_MUTABILITY - Math.random() * Math.abs(MAX_MUTABILITY - MIN_MUTABILITY);
+		weights = new double[weightTotal];
+		values = new double[valueTotal];
+		activation = Activation.EXACT;
+		
+		if(rand != null){
+			for(int i = 0; i < weights.length; i++) weights[i] = Node.getRandom(rand);
+			resetValues();
+		}
+	}
+	
+	/**
+	 * Set the value of every node after the input layer to its bias, which is the value a node has before any input is given
+	 */
+	private void resetValues(){
+		for(int i = 1; i < layers.length; i++){
+			for(int j = 0; j < layers[i]; j++) values[valueOffsets[i] + j] = getBias(i, j);
+		}
 	}
 	
 	/**
@@ -47,15 +129,15 @@ public class Net{
 	 * @param inputs
 	 */
 	public void feedInputs(double[] inputs){
-		for(int i = 0; i < inputs.length; i++) nodes[0][i].setValue(inputs[i]);
+		System.arraycopy(inputs, 0, values, 0, inputs.length);
 	}
 	
 	/**
 	 * @return the array of the output nodes of this net
 	 */
 	public double[] getOutputs(){
-		double[] d = new double[nodes[nodes.length - 1].length];
-		for(int i = 0; i < d.length; i++) d[i] = nodes[nodes.length - 1][i].getValue();
+		double[] d = new double[layers[layers.length - 1]];
+		System.arraycopy(values, valueOffsets[layers.length - 1], d, 0, d.length);
 		return d;
 	}
 	
@@ -63,46 +145,360 @@ public class Net{
 	 * Calculates the values of the nodes in this net based on the current input data
 	 */
 	public void calculateValues(){
-		for(int i = 1; i < nodes.length; i++){
-			double[] input = new double[nodes[i - 1].length];
-			for(int j = 0; j < nodes[i - 1].length; j++) input[j] = nodes[i - 1][j].getValue();
-			for(int j = 0; j < nodes[i].length; j++) nodes[i][j].calculateValue(input);
+		calculateValues(values);
+	}
+	
+	/**
+	 * Calculates the values of the nodes of this net using the inputs in the given context, and puts the output values into the context. 
+	 * The values stored in this net are not changed, and no new objects are created once the context is the right size
+	 * @param c the context holding the inputs, which must be the same length as the first node layer of the net
+	 */
+	public void calculateValues(InferenceContext c){
+		prepareContext(c);
+		double[] v = c.getValues();
+		System.arraycopy(c.getInputs(), 0, v, 0, layers[0]);
+		calculateValues(v);
+		System.arraycopy(v, valueOffsets[layers.length - 1], c.getOutputs(), 0, layers[layers.length - 1]);
+	}
+	
+	/**
+	 * Calculate the outputs of this net for many inputs at once. Each layer is calculated as a matrix product of a block of inputs and the weights of the layer, 
+	 * working on 4 nodes at a time so that each input value is loaded once for 4 weights. The results are exactly the same as calculating each input on its own. 
+	 * The values stored in this net are not changed, and no new objects are created once the context is the right size
+	 * @param c the context to use for the values of the hidden layers
+	 * @param inputs the inputs, one row after another, each row is the length of the first node layer of the net
+	 * @param outputs the array to put the outputs in, one row after another, each row is the length of the last node layer of the net
+	 * @param count the number of rows to calculate
+	 */
+	public void calculateBatch(InferenceContext c, double[] inputs, double[] outputs, int count){
+		int widest = 0;
+		for(int i = 1; i < layers.length - 1; i++) widest = Math.max(widest, layers[i]);
+		c.ensureBatchSize(BATCH_BLOCK * widest);
+		
+		int last = layers.length - 1;
+		for(int start = 0; start < count; start += BATCH_BLOCK){
+			int rows = Math.min(BATCH_BLOCK, count - start);
+			
+			//each layer reads from the values of the layer before it, the first layer reads from the inputs and the last writes to the outputs
+			double[] in = inputs;
+			int inStart = start * layers[0];
+			for(int i = 1; i <= last; i++){
+				double[] out;
+				int outStart;
+				if(i == last){
+					out = outputs;
+					outStart = start * layers[last];
+				}
+				else{
+					out = (in == c.getBatchA()) ? c.getBatchB() : c.getBatchA();
+					outStart = 0;
+				}
+				calculateLayerBlock(i, in, inStart, out, outStart, rows);
+				in = out;
+				inStart = outStart;
+			}
 		}
 	}
 	
 	/**
-	 * Get the nodes of this net
+	 * Calculate the values of one layer for a block of inputs. Nodes are calculated 4 at a time, each with its own running total, 
+	 * so each input value is loaded once for 4 weights, and the processor can work on the 4 totals at the same time instead of waiting on one total. 
+	 * Each total is still added up in the same order, so the result is the same as calculating each node on its own
+	 * @param layer the layer to calculate
+	 * @param in the values of the previous layer, one row after another
+	 * @param inStart the index in in of the first row
+	 * @param out the array to put the values of the layer in, one row after another
+	 * @param outStart the index in out of the first row
+	 * @param rows the number of rows in the block
+	 */
+	private void calculateLayerBlock(int layer, double[] in, int inStart, double[] out, int outStart, int rows){
+		int inSize = layers[layer - 1];
+		int outSize = layers[layer];
+		int rowSize = inSize + 1;
+		int base = weightOffsets[layer];
+		
+		int j = 0;
+		for(; j + 4 <= outSize; j += 4){
+			int w0 = base + j * rowSize;
+			int w1 = w0 + rowSize;
+			int w2 = w1 + rowSize;
+			int w3 = w2 + rowSize;
+			for(int r = 0; r < rows; r++){
+				int x = inStart + r * inSize;
+				double t0 = weights[w0 + inSize];
+				double t1 = weights[w1 + inSize];
+				double t2 = weights[w2 + inSize];
+				double t3 = weights[w3 + inSize];
+				for(int k = 0; k < inSize; k++){
+					double v = in[x + k];
+					t0 += weights[w0 + k] * v;
+					t1 += weights[w1 + k] * v;
+					t2 += weights[w2 + k] * v;
+					t3 += weights[w3 + k] * v;
+				}
+				int o = outStart + r * outSize + j;
+				out[o] = activation.apply(t0);
+				out[o + 1] = activation.apply(t1);
+				out[o + 2] = activation.apply(t2);
+				out[o + 3] = activation.apply(t3);
+			}
+		}
+		//the nodes left over after the groups of 4
+		for(; j < outSize; j++){
+			int w = base + j * rowSize;
+			for(int r = 0; r < rows; r++){
+				int x = inStart + r * inSize;
+				double t = weights[w + inSize];
+				for(int k = 0; k < inSize; k++) t += weights[w + k] * in[x + k];
+				out[outStart + r * outSize + j] = activation.apply(t);
+			}
+		}
+	}
+	
+	/**
+	 * Make sure the given context has buffers large enough for this net
+	 * @param c
+	 */
+	void prepareContext(InferenceContext c){
+		c.ensureSize(layers[0], values.length, layers[layers.length - 1]);
+	}
+	
+	/**
+	 * Calculates the values of every node after the input layer, using the input layer values already in v
+	 * @param v the values of each node, laid out the same way as the values of this net
+	 */
+	private void calculateValues(double[] v){
+		for(int i = 1; i < layers.length; i++) calculateLayerBlock(i, v, valueOffsets[i - 1], v, valueOffsets[i], 1);
+	}
+	
+	/**
+	 * Get views of the nodes of this net, each one reads directly from this net
 	 * @return
 	 */
 	public Node[][] getNodes(){
+		if(nodes == null){
+			Node[][] n = new Node[layers.length][];
+			for(int i = 0; i < n.length; i++){
+				n[i] = new Node[layers[i]];
+				for(int j = 0; j < n[i].length; j++) n[i][j] = new Node(this, i, j);
+			}
+			nodes = n;
+		}
 		return nodes;
 	}
 	
 	/**
-	 * Get a mutated version of this Net, based on the mutability of this net
+	 * @return the number of layers in this net, including the input and output layer
+	 */
+	public int getNumLayers(){
+		return layers.length;
+	}
+	
+	/**
+	 * @param layer
+	 * @return the number of nodes in the given layer
+	 */
+	public int getLayerSize(int layer){
+		return layers[layer];
+	}
+	
+	/**
+	 * Get the weight going into a node from a node in the previous layer
+	 * @param layer the layer of the node, must not be the input layer
+	 * @param node the index of the node in its layer
+	 * @param i the index of the node in the previous layer
+	 * @return
+	 */
+	public double getWeight(int layer, int node, int i){
+		return weights[weightOffsets[layer] + node * (layers[layer - 1] + 1) + i];
+	}
+	
+	/**
+	 * Get the bias of a node
+	 * @param layer the layer of the node, must not be the input layer
+	 * @param node the index of the node in its layer
+	 * @return
+	 */
+	public double getBias(int layer, int node){
+		return weights[weightOffsets[layer] + node * (layers[layer - 1] + 1) + layers[layer - 1]];
+	}
+	
+	/**
+	 * @param layer
+	 * @param node
+	 * @return the current value of the given node, based on the last input
+	 */
+	public double getValue(int layer, int node){
+		return values[valueOffsets[layer] + node];
+	}
+	
+	/**
+	 * Set the value of the given node, should only be used for input nodes
+	 * @param layer
+	 * @param node
+	 * @param v
+	 */
+	public void setValue(int layer, int node, double v){
+		values[valueOffsets[layer] + node] = v;
+	}
+	
+	/**
+	 * Get a mutated version of this Net, based on the mutability of this net. 
+	 * Nets can be mutated on many threads at once, as long as each thread uses its own random numbers, see SplittableRandom.split()
+	 * @param rand the random numbers deciding the mutation
 	 * @return
 	 */
-	public Net getMutatedNet(){
-		Net returnN = new Net(0);
-		double useMut = getNewMutability();
+	public Net getMutatedNet(SplittableRandom rand){
+		Net returnN = new Net(layers, null);
+		mutateInto(returnN, rand);
+		return returnN;
+	}
+	
+	/**
+	 * Make the given net a mutated version of this Net, the same as getMutatedNet, but without creating a new net. 
+	 * Everything in the given net is replaced, so it can be any net with the same layers that is no longer needed
+	 * @param target the net to replace, must have the same layers as this net, can be this net to mutate it in place
+	 * @param rand the random numbers deciding the mutation
+	 */
+	public void mutateInto(Net target, SplittableRandom rand){
+		double useMut = getNewMutability(rand);
 		
-		Node[][] n = new Node[nodes.length][0];
-		for(int i = 0; i < n.length; i++){
-			n[i] = new Node[nodes[i].length];
-			for(int j = 0; j < n[i].length; j++){
-				n[i][j] = nodes[i][j].getMutatedNode(useMut);
+		double[] targetWeights = target.weights;
+		for(int i = 0; i < weights.length; i++){
+			targetWeights[i] = Node.validRange(weights[i] + (rand.nextDouble() - .5) * useMut);
+		}
+		target.activation = activation;
+		target.resetValues();
+		target.mutability = useMut;
+		target.version++;
+	}
+	
+	/**
+	 * Make the given net a child of this net and another net, with each weight and bias taken from one of the parents. 
+	 * The child also gets the mutability of one of the parents, and the activation of this net
+	 * @param other the other parent, must have the same layers as this net
+	 * @param target the net to replace with the child, must have the same layers as this net, can be one of the parents
+	 * @param crossover the way the weights of the parents are mixed
+	 * @param rand the random numbers deciding which parent each weight comes from
+	 */
+	public void crossoverInto(Net other, Net target, Crossover crossover, SplittableRandom rand){
+		double[] targetWeights = target.weights;
+		if(crossover == Crossover.UNIFORM){
+			for(int i = 0; i < weights.length; i++) targetWeights[i] = rand.nextBoolean() ? weights[i] : other.weights[i];
+		}
+		else{
+			for(int i = 1; i < layers.length; i++){
+				double[] from = rand.nextBoolean() ? weights : other.weights;
+				System.arraycopy(from, weightOffsets[i], targetWeights, weightOffsets[i], layers[i] * (layers[i - 1] + 1));
 			}
 		}
-		returnN.nodes = n;
-		returnN.mutability = useMut;
+		target.mutability = rand.nextBoolean() ? mutability : other.mutability;
+		target.activation = activation;
+		target.resetValues();
+		target.version++;
+	}
+	
+	/**
+	 * Make the given net the same as this net, with the same weights, biases, mutability, and activation
+	 * @param target the net to replace, must have the same layers as this net
+	 */
+	public void copyInto(Net target){
+		System.arraycopy(weights, 0, target.weights, 0, weights.length);
+		target.mutability = mutability;
+		target.activation = activation;
+		target.resetValues();
+		target.version++;
+	}
+	
+	/**
+	 * @return a new net that is the same as this net, which does not change when this net changes
+	 */
+	public Net copy(){
+		Net returnN = new Net(layers, null);
+		copyInto(returnN);
 		return returnN;
 	}
 	
 	/**
+	 * Make the given net this net moved in the given direction, with every weight and bias clamped to the range [-1, 1]. 
+	 * The direction has one value for every weight and bias, in the same order as getParameters
+	 * @param target the net to replace, must have the same layers as this net, can be this net
+	 * @param direction
+	 * @param start the index in direction of the value for the first weight
+	 * @param scale the amount to multiply each value of direction by
+	 */
+	public void perturbInto(Net target, double[] direction, int start, double scale){
+		double[] targetWeights = target.weights;
+		for(int i = 0; i < weights.length; i++) targetWeights[i] = Node.validRange(weights[i] + direction[start + i] * scale);
+		target.mutability = mutability;
+		target.activation = activation;
+		target.resetValues();
+		target.version++;
+	}
+	
+	/**
+	 * @return the total number of weights and biases in this net
+	 */
+	public int getNumParameters(){
+		return weights.length;
+	}
+	
+	/**
+	 * Put every weight and bias of this net into the given array. For each layer after the input layer, each node has a row of one weight 
+	 * for every node in the previous layer, followed by the bias of that node
+	 * @param parameters an array with at least getNumParameters values
+	 */
+	public void getParameters(double[] parameters){
+		System.arraycopy(weights, 0, parameters, 0, weights.length);
+	}
+	
+	/**
+	 * Replace every weight and bias of this net with the values in the given array, clamped to the range [-1, 1], in the same order as getParameters
+	 * @param parameters
+	 */
+	public void setParameters(double[] parameters){
+		for(int i = 0; i < weights.length; i++) weights[i] = Node.validRange(parameters[i]);
+		resetValues();
+		version++;
+	}
+	
+	/**
+	 * @param net
+	 * @return true if the given net has the same number of nodes in each layer as this net
+	 */
+	public boolean hasSameLayers(Net net){
+		return Arrays.equals(layers, net.layers);
+	}
+	
+	/**
+	 * @param rand the random numbers deciding the change
 	 * @return a new mutability based on this objects mutability
 	 */
-	public double getNewMutability(){
-		return Math.min(MAX_MUTABILITY, Math.max(MIN_MUTABILITY, mutability + (Math.random() - .5) * MUABILITY_CHANGE));
+	public double getNewMutability(SplittableRandom rand){
+		return Math.min(MAX_MUTABILITY, Math.max(MIN_MUTABILITY, mutability + (rand.nextDouble() - .5) * MUABILITY_CHANGE));
+	}
+	
+	/**
+	 * @return the number of times this net has been mutated into, changes every time the weights of this net are replaced
+	 */
+	public int getVersion(){
+		return version;
+	}
+	
+	/**
+	 * @return the way this net calculates the sigmoid function of each node
+	 */
+	public Activation getActivation(){
+		return activation;
+	}
+	
+	/**
+	 * Set the way this net calculates the sigmoid function of each node, mutated versions of this net use the same activation. 
+	 * Activations other than EXACT are faster, but can make slightly different outputs, see Activation for how different
+	 * @param activation
+	 */
+	public void setActivation(Activation activation){
+		this.activation = activation;
 	}
 	
 	/**
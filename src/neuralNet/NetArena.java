@@ -0,0 +1,93 @@
+package neuralNet;
+
+import java.util.SplittableRandom;
+
+/**
+ * Two sets of nets that are reused for every generation of training, so that mutating a brain does not create any new nets.
+ * Each generation is mutated into the back set while the brain it came from is kept safe, and if one of the new nets is picked as the next brain, 
+ * the sets are flipped so that the new brain is in the front set and is not written over by the next generation. 
+ * Each spot in the arena has its own random numbers, split from one Random when the arena is made, so any number of spots can be mutated on different threads 
+ * at the same time, and each spot gets the same mutations no matter which thread mutates it
+ */
+public class NetArena{
+	
+	/**
+	 * The set holding the brain that the current generation came from, if it came from this arena
+	 */
+	private Net[] front;
+	
+	/**
+	 * The set that the next generation is mutated into. Index 0 is the brain the generation came from, and is never written over
+	 */
+	private Net[] back;
+	
+	/**
+	 * The random numbers of each spot in the arena
+	 */
+	private SplittableRandom[] streams;
+	
+	/**
+	 * @param template a net with the layers that every net in the arena should have
+	 * @param size the number of mutated nets in each generation
+	 * @param rand the random numbers to split the random numbers of each spot from
+	 */
+	public NetArena(Net template, int size, SplittableRandom rand){
+		front = new Net[size + 1];
+		back = new Net[size + 1];
+		streams = new SplittableRandom[size + 1];
+		int[] layers = new int[template.getNumLayers()];
+		for(int i = 0; i < layers.length; i++) layers[i] = template.getLayerSize(i);
+		for(int i = 1; i <= size; i++){
+			front[i] = new Net(layers, null);
+			back[i] = new Net(layers, null);
+			streams[i] = rand.split();
+		}
+	}
+	
+	/**
+	 * Start a new generation from the given parent, the parent must not be one of the nets in the back set
+	 * @param parent
+	 * @return the nets of the generation, with the parent at index 0, and the spots to mutate into after it. 
+	 * 	This is the same array every time the arena is flipped twice, so it should not be kept
+	 */
+	public Net[] startGeneration(Net parent){
+		back[0] = parent;
+		return back;
+	}
+	
+	/**
+	 * Mutate the parent of the current generation into the given spot of the back set
+	 * @param index the spot, in the range [1, size]
+	 * @return the mutated net
+	 */
+	public Net mutate(int index){
+		back[0].mutateInto(back[index], streams[index]);
+		return back[index];
+	}
+	
+	/**
+	 * Swap the front and back sets, call after one of the nets in the back set has been picked, so that it is kept while the next generation is made
+	 */
+	public void flip(){
+		Net[] f = front;
+		front = back;
+		back = f;
+	}
+	
+	/**
+	 * @param net
+	 * @param size
+	 * @return true if this arena holds generations of the given size for nets with the same layers as the given net
+	 */
+	public boolean fits(Net net, int size){
+		return back.length == size + 1 && (size == 0 || back[1].hasSameLayers(net));
+	}
+	
+	/**
+	 * @return the number of mutated nets in each generation
+	 */
+	public int getSize(){
+		return back.length - 1;
+	}
+	
+}
@@ -1,31 +1,37 @@
 package neuralNet;
 
+import java.util.SplittableRandom;
+
+/**
+ * A view of a single node in a Net. The weights, bias, and value of the node are stored in the Net, so this object only keeps track of where to find them
+ */
 public class Node{
 	
 	/**
-	 * The value of this node before any weights are considered. Always in range [-1, 1]
+	 * The net that this node is a part of
 	 */
-	private double bias;
+	private Net net;
 	
 	/**
-	 * All of the weights going into this node, each weight is in range [-1, 1]
+	 * The layer of the net that this node is in
 	 */
-	private double[] weights;
+	private int layer;
 	
 	/**
-	 * The current value of this node based on the last data fed into this node
+	 * The index of this node in its layer
 	 */
-	private double value;
+	private int index;
 	
 	/**
-	 * Create a node with numWeights going into it, the bias and every weight is randomized
-	 * @param numWeights
+	 * Create a view of the node at the given position in the given net
+	 * @param net
+	 * @param layer
+	 * @param index
 	 */
-	public Node(int numWeights){
-		weights = new double[numWeights];
-		for(int i = 0; i < weights.length; i++) weights[i] = getRandom();
-		bias = getRandom();
-		value = bias;
+	public Node(Net net, int layer, int index){
+		this.net = net;
+		this.layer = layer;
+		this.index = index;
 	}
 	
 	/**
@@ -34,16 +40,22 @@ public class Node{
 	 * @return
 	 */
 	public double getWeight(int i){
-		return weights[i];
+		return net.getWeight(layer, index, i);
+	}
+	
+	/**
+	 * @return the bias of this node, the value of this node before any weights are considered. Always in range [-1, 1]
+	 */
+	public double getBias(){
+		return net.getBias(layer, index);
 	}
 	
 	/**
-	 * @param input each value that will be multiplied by each weight, must be the same size as weights
+	 * @return the number of weights going into this node, 0 for input nodes
 	 */
-	public void calculateValue(double[] input){
-		double total = bias;
-		for(int i = 0; i < weights.length; i++) total += weights[i] * input[i];
-		value = sigmoid(total);
+	public int getNumWeights(){
+		if(layer == 0) return 0;
+		return net.getLayerSize(layer - 1);
 	}
 	
 	/**
@@ -51,28 +63,14 @@ public class Node{
 	 * @param v
 	 */
 	public void setValue(double v){
-		value = v;
+		net.setValue(layer, index, v);
 	}
 	
 	/**
 	 * @return the current value of this node, based on the last input
 	 */
 	public double getValue(){
-		return value;
-	}
-	
-	/**
-	 * Make a copy of this node with a modified bias and weights based on the given mutability
-	 * @param mutability
-	 * @return
-	 */
-	public Node getMutatedNode(double mutability){
-		Node n = new Node(weights.length);
-		for(int i = 0; i < weights.length; i++){
-			n.weights[i] = validRange(weights[i] + (Math.random() - .5) * mutability);
-		}
-		n.bias = validRange(bias + (Math.random() - .5) * mutability);
-		return n;
+		return net.getValue(layer, index);
 	}
 	
 	/**
@@ -84,10 +82,11 @@ public class Node{
 	}
 	
 	/**
+	 * @param rand
 	 * @return a random number in the range of [-1, 1]. Valid for weights and biases
 	 */
-	public static double getRandom(){
-		return (Math.random() - .5) * 2;
+	public static double getRandom(SplittableRandom rand){
+		return (rand.nextDouble() - .5) * 2;
 	}
 	
 	/**